@@ -0,0 +1,45 @@
+package com.cartagenacorp.lm_comments.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService externalCallExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService issuePurgeExecutor(@Value("${app.issue-purge.max-concurrent-jobs:2}") int maxConcurrentJobs) {
+        return Executors.newFixedThreadPool(maxConcurrentJobs, Thread.ofPlatform().name("issue-purge-", 0).factory());
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService fileDeletionExecutor(@Value("${app.file-deletion.workers:4}") int workers) {
+        return Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("file-deletion-", 0).factory());
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService fileUploadExecutor(@Value("${app.file-upload.workers:4}") int workers) {
+        return Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("file-upload-", 0).factory());
+    }
+
+    // Cola acotada: si se llena, ThumbnailService descarta la tarea en lugar de acumular memoria
+    @Bean(destroyMethod = "close")
+    public ExecutorService thumbnailExecutor(@Value("${app.thumbnails.workers:2}") int workers,
+                                             @Value("${app.thumbnails.queue-capacity:1000}") int queueCapacity) {
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("thumbnail-", 0).factory());
+    }
+}
@@ -0,0 +1,121 @@
+package com.cartagenacorp.lm_comments.config;
+
+import com.cartagenacorp.lm_comments.dto.IssueCommentCountDto;
+import com.cartagenacorp.lm_comments.dto.UserBasicDataDto;
+import com.cartagenacorp.lm_comments.service.IssueCommentCountService.IssueCountKey;
+import com.cartagenacorp.lm_comments.service.IssueExternalService.IssueAccessKey;
+import com.cartagenacorp.lm_comments.service.UserExternalService.UserKey;
+import com.cartagenacorp.lm_comments.util.JwtPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public Cache<IssueAccessKey, Boolean> issueAccessCache(
+            @Value("${issues.service.access-cache.maximum-size:10000}") long maximumSize,
+            @Value("${issues.service.access-cache.ttl:60s}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        Cache<IssueAccessKey, Boolean> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "issueAccess");
+    }
+
+    @Bean
+    public Cache<IssueAccessKey, Boolean> issueAccessStaleCache(
+            @Value("${issues.service.access-cache.maximum-size:10000}") long maximumSize,
+            @Value("${issues.service.access-cache.stale-grace:5m}") Duration staleGrace) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(staleGrace)
+                .build();
+    }
+
+    @Bean
+    public Cache<IssueCountKey, IssueCommentCountDto> issueCommentCountCache(
+            @Value("${app.comment-counts.cache.maximum-size:50000}") long maximumSize,
+            @Value("${app.comment-counts.cache.ttl:30s}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        Cache<IssueCountKey, IssueCommentCountDto> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "issueCommentCounts");
+    }
+
+    @Bean
+    public Cache<UserKey, Optional<UserBasicDataDto>> userCache(
+            @Value("${auth.service.user-cache.maximum-size:50000}") long maximumSize,
+            @Value("${auth.service.user-cache.ttl:5m}") Duration ttl,
+            @Value("${auth.service.user-cache.negative-ttl:30s}") Duration negativeTtl,
+            MeterRegistry meterRegistry) {
+        Cache<UserKey, Optional<UserBasicDataDto>> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<UserKey, Optional<UserBasicDataDto>>() {
+                    @Override
+                    public long expireAfterCreate(UserKey key, Optional<UserBasicDataDto> value, long currentTime) {
+                        return (value.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UserKey key, Optional<UserBasicDataDto> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(UserKey key, Optional<UserBasicDataDto> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    @Bean
+    public Cache<String, JwtPrincipal> verifiedTokenCache(
+            @Value("${app.jwt.cache.maximum-size:10000}") long maximumSize,
+            @Value("${app.jwt.cache.max-ttl:15m}") Duration maxTtl,
+            MeterRegistry meterRegistry) {
+        Cache<String, JwtPrincipal> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, JwtPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtPrincipal value, long currentTime) {
+                        if (value.expiresAt() == null) {
+                            return maxTtl.toNanos();
+                        }
+                        Duration untilExpiration = Duration.between(Instant.now(), value.expiresAt());
+                        return Math.max(0, Math.min(untilExpiration.toNanos(), maxTtl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtPrincipal value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtPrincipal value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+    }
+}
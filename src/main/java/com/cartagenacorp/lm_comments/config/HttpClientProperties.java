@@ -0,0 +1,16 @@
+package com.cartagenacorp.lm_comments.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class HttpClientProperties {
+    private int maxConnections = 50;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private Duration responseTimeout = Duration.ofSeconds(5);
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private boolean http2 = false;
+}
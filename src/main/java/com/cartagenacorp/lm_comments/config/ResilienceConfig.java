@@ -0,0 +1,115 @@
+package com.cartagenacorp.lm_comments.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+@Configuration
+public class ResilienceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilienceConfig.class);
+
+    @Bean
+    @ConfigurationProperties("issues.service.resilience")
+    public ResilienceProperties issuesResilienceProperties() {
+        return new ResilienceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("auth.service.resilience")
+    public ResilienceProperties authResilienceProperties() {
+        return new ResilienceProperties();
+    }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public CircuitBreaker issuesCircuitBreaker(CircuitBreakerRegistry registry, MeterRegistry meterRegistry,
+                                               @Qualifier("issuesResilienceProperties") ResilienceProperties properties) {
+        return circuitBreaker("issues", registry, meterRegistry, properties);
+    }
+
+    @Bean
+    public CircuitBreaker authCircuitBreaker(CircuitBreakerRegistry registry, MeterRegistry meterRegistry,
+                                             @Qualifier("authResilienceProperties") ResilienceProperties properties) {
+        return circuitBreaker("auth", registry, meterRegistry, properties);
+    }
+
+    @Bean
+    public Bulkhead issuesBulkhead(BulkheadRegistry registry, MeterRegistry meterRegistry,
+                                   @Qualifier("issuesResilienceProperties") ResilienceProperties properties) {
+        return bulkhead("issues", registry, meterRegistry, properties);
+    }
+
+    @Bean
+    public Bulkhead authBulkhead(BulkheadRegistry registry, MeterRegistry meterRegistry,
+                                 @Qualifier("authResilienceProperties") ResilienceProperties properties) {
+        return bulkhead("auth", registry, meterRegistry, properties);
+    }
+
+    private CircuitBreaker circuitBreaker(String name, CircuitBreakerRegistry registry, MeterRegistry meterRegistry,
+                                          ResilienceProperties properties) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.getPermittedCallsInHalfOpenState())
+                .recordExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build();
+
+        CircuitBreaker circuitBreaker = registry.circuitBreaker(name, config);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            logger.warn("Circuit breaker de {} cambió de estado: {}", name, event.getStateTransition());
+            meterRegistry.counter("circuitbreaker.state.transitions",
+                    "name", name,
+                    "from", event.getStateTransition().getFromState().name(),
+                    "to", event.getStateTransition().getToState().name()).increment();
+        });
+        return circuitBreaker;
+    }
+
+    private Bulkhead bulkhead(String name, BulkheadRegistry registry, MeterRegistry meterRegistry,
+                              ResilienceProperties properties) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getMaxWaitDuration())
+                .build();
+
+        Bulkhead bulkhead = registry.bulkhead(name, config);
+        Counter rejectedCalls = Counter.builder("bulkhead.calls.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+        bulkhead.getEventPublisher().onCallRejected(event -> rejectedCalls.increment());
+        return bulkhead;
+    }
+}
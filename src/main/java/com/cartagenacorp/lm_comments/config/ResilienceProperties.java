@@ -0,0 +1,16 @@
+package com.cartagenacorp.lm_comments.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class ResilienceProperties {
+    private float failureRateThreshold = 50;
+    private int slidingWindowSize = 20;
+    private int minimumNumberOfCalls = 10;
+    private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+    private int permittedCallsInHalfOpenState = 3;
+    private int maxConcurrentCalls = 50;
+    private Duration maxWaitDuration = Duration.ofMillis(100);
+}
@@ -1,14 +1,84 @@
 package com.cartagenacorp.lm_comments.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+
 @Configuration
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    @ConfigurationProperties("issues.service.http")
+    public HttpClientProperties issuesHttpClientProperties() {
+        return new HttpClientProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("auth.service.http")
+    public HttpClientProperties authHttpClientProperties() {
+        return new HttpClientProperties();
+    }
+
+    @Bean
+    public RestTemplate issuesRestTemplate(@Qualifier("issuesHttpClientProperties") HttpClientProperties properties,
+                                           MeterRegistry meterRegistry) {
+        return new RestTemplate(requestFactory("issues", properties, meterRegistry));
+    }
+
+    @Bean
+    public RestTemplate authRestTemplate(@Qualifier("authHttpClientProperties") HttpClientProperties properties,
+                                         MeterRegistry meterRegistry) {
+        return new RestTemplate(requestFactory("auth", properties, meterRegistry));
+    }
+
+    private ClientHttpRequestFactory requestFactory(String name, HttpClientProperties properties, MeterRegistry meterRegistry) {
+        if (properties.isHttp2()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(properties.getConnectTimeout())
+                    .build();
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(properties.getReadTimeout());
+            return requestFactory;
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                        .setTimeToLive(TimeValue.of(properties.getKeepAlive()))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(properties.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(properties.getResponseTimeout()))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(properties.getKeepAlive()))
+                .evictIdleConnections(TimeValue.of(properties.getKeepAlive()))
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
     }
 }
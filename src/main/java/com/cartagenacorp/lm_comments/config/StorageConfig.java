@@ -0,0 +1,59 @@
+package com.cartagenacorp.lm_comments.config;
+
+import com.cartagenacorp.lm_comments.storage.FileStorage;
+import com.cartagenacorp.lm_comments.storage.S3FileStorage;
+import com.cartagenacorp.lm_comments.storage.ShardedFileSystemStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConfigurationProperties("file.storage")
+    public StorageProperties storageProperties() {
+        return new StorageProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "file.storage.type", havingValue = "sharded", matchIfMissing = true)
+    public FileStorage shardedFileStorage(StorageProperties storageProperties, @Value("${file.upload-dir}") String uploadDir) {
+        return new ShardedFileSystemStorage(Paths.get(uploadDir), storageProperties.getShardDepth());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "file.storage.type", havingValue = "s3")
+    public S3Client storageS3Client(StorageProperties storageProperties) {
+        StorageProperties.S3 s3 = storageProperties.getS3();
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(s3.getRegion()))
+                .forcePathStyle(s3.isPathStyleAccess());
+        if (s3.getEndpoint() != null && !s3.getEndpoint().isBlank()) {
+            builder.endpointOverride(URI.create(s3.getEndpoint()));
+        }
+        if (s3.getAccessKey() != null && !s3.getAccessKey().isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(s3.getAccessKey(), s3.getSecretKey())));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "file.storage.type", havingValue = "s3")
+    public FileStorage s3FileStorage(S3Client storageS3Client, StorageProperties storageProperties,
+                                     @Value("${file.upload-dir}") String uploadDir) {
+        return new S3FileStorage(storageS3Client, storageProperties.getS3().getBucket(),
+                storageProperties.getShardDepth(), Paths.get(uploadDir));
+    }
+}
@@ -0,0 +1,20 @@
+package com.cartagenacorp.lm_comments.config;
+
+import lombok.Data;
+
+@Data
+public class StorageProperties {
+    private String type = "sharded";
+    private int shardDepth = 2;
+    private S3 s3 = new S3();
+
+    @Data
+    public static class S3 {
+        private String endpoint;
+        private String region = "us-east-1";
+        private String bucket;
+        private String accessKey;
+        private String secretKey;
+        private boolean pathStyleAccess = true;
+    }
+}
@@ -1,5 +1,7 @@
 package com.cartagenacorp.lm_comments.config;
 
+import com.cartagenacorp.lm_comments.storage.FileStorage;
+import com.cartagenacorp.lm_comments.storage.FileStorageResourceResolver;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -12,22 +14,32 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${app.cors.allowed-origins}")
     private String[] allowedOrigins;
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    // /uploads/** no comprueba permisos; las descargas autorizadas van por /api/comments/attachments/{id}
+    @Value("${file.public-access:true}")
+    private boolean publicAccess;
+
+    private final FileStorage fileStorage;
+
+    public WebConfig(FileStorage fileStorage) {
+        this.fileStorage = fileStorage;
+    }
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        String resourcePath = "file:///" + uploadDir.replace("\\", "/") + "/";
+        if (!publicAccess) {
+            return;
+        }
         registry
                 .addResourceHandler("/uploads/**")
-                .addResourceLocations(resourcePath);
+                .resourceChain(false)
+                .addResolver(new FileStorageResourceResolver(fileStorage));
     }
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
                 .allowedOrigins(allowedOrigins)
-                .allowedMethods("GET", "POST", "DELETE", "OPTIONS")
+                .allowedMethods("GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*");
     }
 }
@@ -0,0 +1,158 @@
+package com.cartagenacorp.lm_comments.controller;
+
+import com.cartagenacorp.lm_comments.exception.FileStorageException;
+import com.cartagenacorp.lm_comments.service.FileAttachmentService;
+import com.cartagenacorp.lm_comments.util.RequiresPermission;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/api/comments/attachments")
+public class AttachmentController {
+
+    // Atributos con los que Tomcat envía el archivo con sendfile, sin copiarlo a memoria de la aplicación
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // El contenido de un adjunto no cambia nunca. Es privado para que una caché compartida no lo sirva a otros usuarios.
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+
+    private final FileAttachmentService fileAttachmentService;
+
+    public AttachmentController(FileAttachmentService fileAttachmentService) {
+        this.fileAttachmentService = fileAttachmentService;
+    }
+
+    @GetMapping("/{attachmentId}")
+    @RequiresPermission({"COMMENT_READ"})
+    public ResponseEntity<?> downloadAttachment(@PathVariable String attachmentId, ServletWebRequest webRequest) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(attachmentId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        return serve(() -> fileAttachmentService.getAttachmentDownload(uuid), webRequest);
+    }
+
+    @GetMapping("/{attachmentId}/thumbnail")
+    @RequiresPermission({"COMMENT_READ"})
+    public ResponseEntity<?> downloadThumbnail(@PathVariable String attachmentId, ServletWebRequest webRequest) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(attachmentId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        return serve(() -> fileAttachmentService.getThumbnailDownload(uuid), webRequest);
+    }
+
+    private ResponseEntity<?> serve(Supplier<FileAttachmentService.AttachmentDownload> downloadSupplier,
+                                    ServletWebRequest webRequest) {
+        try {
+            FileAttachmentService.AttachmentDownload download = downloadSupplier.get();
+            String etag = "\"" + download.etag() + "\"";
+            if (webRequest.checkNotModified(etag, download.lastModified())) {
+                return null;
+            }
+
+            // checkNotModified ya escribió ETag y Last-Modified en la respuesta
+            HttpHeaders headers = new HttpHeaders();
+            headers.setCacheControl(IMMUTABLE);
+            headers.setContentType(download.mediaType());
+            headers.setContentDisposition(contentDisposition(download));
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.set("X-Content-Type-Options", "nosniff");
+
+            HttpServletRequest request = webRequest.getRequest();
+            // HEAD se responde con los metadatos guardados, sin abrir el archivo
+            if (HttpMethod.HEAD.matches(request.getMethod()) && download.size() != null) {
+                headers.setContentLength(download.size());
+                return ResponseEntity.ok().headers(headers).build();
+            }
+
+            Resource resource = fileAttachmentService.loadAttachment(download);
+            if (resource.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                ResponseEntity<?> sendfileResponse = sendfile(resource.getFile(), etag, request, headers);
+                if (sendfileResponse != null) {
+                    return sendfileResponse;
+                }
+            }
+            // Sin sendfile (o con varios rangos) Spring sirve el recurso y resuelve la cabecera Range
+            return ResponseEntity.ok().headers(headers).body(resource);
+        } catch (FileStorageException | IOException ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error reading file");
+        }
+    }
+
+    private ResponseEntity<?> sendfile(File file, String etag, HttpServletRequest request, HttpHeaders headers) {
+        long length = file.length();
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() != 1) {
+                    return null;
+                }
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+                if (start >= length || end < start) {
+                    throw new IllegalArgumentException("Unsatisfiable range: " + rangeHeader);
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        if (length == 0) {
+            return null;
+        }
+        headers.setContentLength(end - start + 1);
+        request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, end + 1);
+        return ResponseEntity.status(status).headers(headers).build();
+    }
+
+    private static ContentDisposition contentDisposition(FileAttachmentService.AttachmentDownload download) {
+        MediaType mediaType = download.mediaType();
+        // SVG y HTML pueden ejecutar scripts: solo se muestran en línea tipos de contenido pasivos
+        boolean inline = ("image".equals(mediaType.getType()) && !mediaType.getSubtype().contains("svg"))
+                || "video".equals(mediaType.getType())
+                || "audio".equals(mediaType.getType()) || MediaType.APPLICATION_PDF.includes(mediaType);
+        ContentDisposition.Builder builder = inline ? ContentDisposition.inline() : ContentDisposition.attachment();
+        return builder.filename(download.fileName(), StandardCharsets.UTF_8).build();
+    }
+}
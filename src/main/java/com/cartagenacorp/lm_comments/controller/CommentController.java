@@ -3,27 +3,47 @@ package com.cartagenacorp.lm_comments.controller;
 import com.cartagenacorp.lm_comments.dto.CommentDTO;
 import com.cartagenacorp.lm_comments.dto.CommentResponsesDto;
 import com.cartagenacorp.lm_comments.exception.FileStorageException;
+import com.cartagenacorp.lm_comments.service.CommentImportService;
+import com.cartagenacorp.lm_comments.service.CommentSearchService;
 import com.cartagenacorp.lm_comments.service.CommentService;
 import com.cartagenacorp.lm_comments.util.RequiresPermission;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/comments")
 public class CommentController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_LATEST_RESPONSES = 10;
+    private static final int MAX_SEARCH_QUERY_LENGTH = 200;
+    private static final int MAX_COUNT_ISSUES = 500;
+
     private final CommentService commentService;
+    private final CommentImportService commentImportService;
+    private final CommentSearchService commentSearchService;
 
-    public CommentController(CommentService commentService) {
+    public CommentController(CommentService commentService, CommentImportService commentImportService,
+                             CommentSearchService commentSearchService) {
         this.commentService = commentService;
+        this.commentImportService = commentImportService;
+        this.commentSearchService = commentSearchService;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -40,19 +60,96 @@ public class CommentController {
         }
     }
 
+    // Contadores de varias issues en una sola petición (tableros y listados); POST para no limitar la cantidad de ids por la URL.
+    // Las issues sin acceso de lectura no aparecen en la respuesta
+    @PostMapping("/counts")
+    @RequiresPermission({"COMMENT_READ"})
+    public ResponseEntity<?> getCommentCounts(@RequestBody List<UUID> issueIds) {
+        if (issueIds == null || issueIds.isEmpty() || issueIds.size() > MAX_COUNT_ISSUES) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Between 1 and " + MAX_COUNT_ISSUES + " issue ids are required");
+        }
+        return ResponseEntity.ok(commentService.getCommentCounts(issueIds));
+    }
+
+    // Búsqueda de texto en comentarios y respuestas de la organización, ordenada por relevancia
+    @GetMapping("/search")
+    @RequiresPermission({"COMMENT_READ"})
+    public ResponseEntity<?> searchComments(
+            @RequestParam String q,
+            @RequestParam(required = false) String issueId,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        if (!StringUtils.hasText(q) || q.length() > MAX_SEARCH_QUERY_LENGTH) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Query must be between 1 and " + MAX_SEARCH_QUERY_LENGTH + " characters");
+        }
+        UUID issueUuid;
+        UUID userUuid;
+        try {
+            issueUuid = issueId != null ? UUID.fromString(issueId) : null;
+            userUuid = userId != null ? UUID.fromString(userId) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("from must be before to");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(commentSearchService.search(q, issueUuid, userUuid, from, to, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor");
+        }
+    }
+
     @GetMapping("/{issueId}")
     @RequiresPermission({"COMMENT_READ"})
     public ResponseEntity<?> getCommentsByIssue(
             @PathVariable String issueId,
-            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+            @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "0") int latestResponses) {
+        if (latestResponses < 0 || latestResponses > MAX_LATEST_RESPONSES) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("latestResponses must be between 0 and " + MAX_LATEST_RESPONSES);
+        }
         try {
             UUID uuid = UUID.fromString(issueId);
-            return ResponseEntity.ok(commentService.getCommentsByIssueId(uuid, pageable));
+            return ResponseEntity.ok(commentService.getCommentsByIssueId(uuid, pageable, latestResponses));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
         }
     }
 
+    @GetMapping("/{issueId}/cursor")
+    @RequiresPermission({"COMMENT_READ"})
+    public ResponseEntity<?> getCommentsByIssueKeyset(
+            @PathVariable String issueId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @RequestParam(defaultValue = "0") int latestResponses) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(issueId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (latestResponses < 0 || latestResponses > MAX_LATEST_RESPONSES) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("latestResponses must be between 0 and " + MAX_LATEST_RESPONSES);
+        }
+        try {
+            return ResponseEntity.ok(commentService.getCommentsByIssueIdKeyset(uuid, cursor, size, includeTotal, latestResponses));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor");
+        }
+    }
+
     @DeleteMapping("/{commentId}")
     @RequiresPermission({"COMMENT_DELETE"})
     public ResponseEntity<?> deleteComment(@PathVariable String commentId) {
@@ -73,13 +170,39 @@ public class CommentController {
 
     @GetMapping("/responses/{commentId}")
     @RequiresPermission({"COMMENT_READ"})
-    public ResponseEntity<?> getResponsesByCommentId(@PathVariable String commentId) {
+    public ResponseEntity<?> getResponsesByCommentId(
+            @PathVariable String commentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        UUID uuid;
         try {
-            UUID uuid = UUID.fromString(commentId);
-            return ResponseEntity.ok(commentService.getResponsesByCommentId(uuid));
+            uuid = UUID.fromString(commentId);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
         }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(commentService.getResponsesByCommentId(uuid, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor");
+        }
+    }
+
+    // Todas las respuestas de un hilo como NDJSON, sin paginar en el cliente
+    @GetMapping(value = "/responses/{commentId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @RequiresPermission({"COMMENT_READ"})
+    public ResponseEntity<StreamingResponseBody> streamResponsesByCommentId(@PathVariable String commentId) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(commentId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid uuid");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(commentService.streamResponsesByCommentId(uuid));
     }
 
     @DeleteMapping("/responses/{responseId}")
@@ -96,8 +219,35 @@ public class CommentController {
 
     @DeleteMapping("/internal/issues/{issueId}/comments") //se usa desde lm-issues (uso interno)
     @RequiresPermission({"ISSUE_DELETE"})
-    public ResponseEntity<Void> deleteCommentsByIssue(@PathVariable UUID issueId) {
+    public ResponseEntity<?> deleteCommentsByIssue(@PathVariable UUID issueId,
+                                                   @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(commentService.deleteCommentsByIssueIdAsync(issueId));
+        }
         commentService.deleteCommentsByIssueId(issueId);
         return ResponseEntity.noContent().build();
     }
+
+    // Importación masiva (migraciones desde otros gestores): NDJSON o un array JSON de comentarios con sus respuestas.
+    // Conserva el autor y la fecha originales, así que exige un permiso propio y no basta con COMMENT_CREATE
+    @PostMapping(value = "/internal/issues/{issueId}/import",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @RequiresPermission({"COMMENT_IMPORT"})
+    public ResponseEntity<?> importComments(@PathVariable String issueId, HttpServletRequest request) throws IOException {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(issueId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(commentImportService.importComments(uuid, request.getInputStream()));
+    }
+
+    @GetMapping("/internal/issues/purge-jobs/{jobId}")
+    @RequiresPermission({"ISSUE_DELETE"})
+    public ResponseEntity<?> getIssuePurgeJob(@PathVariable UUID jobId) {
+        return commentService.getIssuePurgeJob(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Job not found"));
+    }
 }
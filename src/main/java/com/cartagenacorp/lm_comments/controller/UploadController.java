@@ -0,0 +1,93 @@
+package com.cartagenacorp.lm_comments.controller;
+
+import com.cartagenacorp.lm_comments.dto.UploadSessionDto;
+import com.cartagenacorp.lm_comments.exception.FileStorageException;
+import com.cartagenacorp.lm_comments.service.ChunkedUploadService;
+import com.cartagenacorp.lm_comments.util.RequiresPermission;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/comments/uploads")
+public class UploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    public UploadController(ChunkedUploadService chunkedUploadService) {
+        this.chunkedUploadService = chunkedUploadService;
+    }
+
+    @PostMapping
+    @RequiresPermission({"COMMENT_CREATE"})
+    public ResponseEntity<?> createUploadSession(@RequestBody UploadSessionDto request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(chunkedUploadService.createSession(request));
+    }
+
+    @GetMapping("/{sessionId}")
+    @RequiresPermission({"COMMENT_CREATE"})
+    public ResponseEntity<?> getUploadSession(@PathVariable String sessionId) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(sessionId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        return ResponseEntity.ok(chunkedUploadService.getSession(uuid));
+    }
+
+    // El cuerpo se lee como flujo crudo: no pasa por el resolver de multipart ni se carga en memoria
+    @PutMapping(value = "/{sessionId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @RequiresPermission({"COMMENT_CREATE"})
+    public ResponseEntity<?> uploadChunk(@PathVariable String sessionId, @PathVariable int index,
+                                         @RequestHeader(value = "X-Chunk-Checksum", required = false) String checksum,
+                                         HttpServletRequest request) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(sessionId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        try {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(uuid, index, checksum, request.getInputStream()));
+        } catch (FileStorageException | IOException ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error saving files");
+        }
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    @RequiresPermission({"COMMENT_CREATE"})
+    public ResponseEntity<?> completeUpload(@PathVariable String sessionId, @RequestParam String commentId) {
+        UUID sessionUuid;
+        UUID commentUuid;
+        try {
+            sessionUuid = UUID.fromString(sessionId);
+            commentUuid = UUID.fromString(commentId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        try {
+            return ResponseEntity.ok(chunkedUploadService.completeUpload(sessionUuid, commentUuid));
+        } catch (FileStorageException ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error saving files");
+        }
+    }
+
+    @DeleteMapping("/{sessionId}")
+    @RequiresPermission({"COMMENT_CREATE"})
+    public ResponseEntity<?> abortUpload(@PathVariable String sessionId) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(sessionId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid uuid");
+        }
+        chunkedUploadService.abortUpload(uuid);
+        return ResponseEntity.noContent().build();
+    }
+}
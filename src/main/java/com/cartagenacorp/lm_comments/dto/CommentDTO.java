@@ -21,4 +21,5 @@ public class CommentDTO {
     private UserBasicDataDto user;
     private Integer responsesCount;
     private UUID organizationId;
+    private List<CommentResponsesDto> latestResponses;
 }
@@ -0,0 +1,16 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentImportBatchDto {
+    private int batch;
+    private int comments;
+    private int responses;
+    private long durationMs;
+    private double commentsPerSecond;
+}
@@ -0,0 +1,19 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentImportDto {
+    private UUID userId;
+    private String text;
+    private LocalDateTime createdAt;
+    private List<CommentResponsesDto> responses;
+}
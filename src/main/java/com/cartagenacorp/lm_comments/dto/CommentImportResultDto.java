@@ -0,0 +1,19 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentImportResultDto {
+    private UUID issueId;
+    private long importedComments;
+    private long importedResponses;
+    private long durationMs;
+    private List<CommentImportBatchDto> batches;
+}
@@ -0,0 +1,28 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentSearchHitDto {
+    private Type type;
+    private UUID id;
+    private UUID commentId;
+    private UUID issueId;
+    private UUID userId;
+    private String text;
+    private LocalDateTime createdAt;
+    private float rank;
+    private UserBasicDataDto user;
+
+    public enum Type {
+        COMMENT,
+        RESPONSE
+    }
+}
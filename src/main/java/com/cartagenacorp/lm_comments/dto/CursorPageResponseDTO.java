@@ -0,0 +1,18 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponseDTO<T> {
+    private List<T> content;
+    private String nextCursor;
+    private String previousCursor;
+    private int size;
+    private Long totalElements;
+}
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Data
@@ -14,5 +15,11 @@ public class FileAttachmentDTO {
     private UUID id;
     private String fileName;
     private String fileUrl;
+    private Long size;
+    private String contentType;
+    private String checksum;
+    private LocalDateTime createdAt;
+    private String thumbnailUrl;
+    private String placeholder;
     private UUID commentId;
 }
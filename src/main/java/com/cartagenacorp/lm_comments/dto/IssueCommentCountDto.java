@@ -0,0 +1,5 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import java.util.UUID;
+
+public record IssueCommentCountDto(UUID issueId, long comments, long responses) {}
@@ -0,0 +1,23 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IssuePurgeJobDto {
+    private UUID id;
+    private UUID issueId;
+    private String status;
+    private long totalComments;
+    private long deletedComments;
+    private long queuedFileDeletions;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
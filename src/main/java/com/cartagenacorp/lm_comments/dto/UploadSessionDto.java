@@ -0,0 +1,25 @@
+package com.cartagenacorp.lm_comments.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionDto {
+    private UUID id;
+    private String fileName;
+    private long totalSize;
+    private int chunkSize;
+    private int totalChunks;
+    // Partes ya recibidas; el cliente solo reenvía las que faltan
+    private List<Integer> receivedChunks;
+    private String status;
+    private UUID attachmentId;
+    private LocalDateTime expiresAt;
+}
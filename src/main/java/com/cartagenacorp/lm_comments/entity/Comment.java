@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -11,7 +13,9 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "comment")
+@Table(name = "comment", indexes = {
+        @Index(name = "idx_comment_issue_created_at_id", columnList = "issue_id, created_at, id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -32,6 +36,7 @@ public class Comment {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "comment", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<FileAttachment> attachments = new ArrayList<>();
 
@@ -40,4 +45,8 @@ public class Comment {
 
     @Column(name = "organization_id")
     private UUID organizationId;
+
+    @ColumnDefault("0")
+    @Column(name = "responses_count", nullable = false, updatable = false)
+    private int responsesCount;
 }
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
@@ -17,13 +18,39 @@ public class FileAttachment {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private UUID id;
 
+    // Clave en el almacenamiento; con deduplicación es "<sha256>.<extensión>"
     @Column(nullable = false)
     private String fileName;
 
+    // Nombre con el que se subió el archivo; null en adjuntos antiguos
+    private String originalFileName;
+
     @Column(nullable = false)
     private String fileUrl;
 
-    @ManyToOne()
+    // Metadatos calculados al recibir el archivo; null en adjuntos antiguos hasta que los rellene el backfill
+    private Long size;
+
+    private String contentType;
+
+    // SHA-256 en hexadecimal
+    @Column(length = 64)
+    private String checksum;
+
+    private LocalDateTime createdAt;
+
+    // Miniatura (clave en el almacenamiento, servida por AttachmentController) y placeholder: se rellenan en segundo plano; null mientras no existan
+    private String thumbnailFileName;
+
+    @Column(length = 4000)
+    private String placeholder;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "comment_id", nullable = false)
     private Comment comment;
+
+    // null en los adjuntos guardados sin deduplicación
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_digest")
+    private FileBlob blob;
 }
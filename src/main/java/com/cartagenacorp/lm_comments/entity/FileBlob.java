@@ -0,0 +1,38 @@
+package com.cartagenacorp.lm_comments.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contenido de un archivo almacenado una sola vez bajo su hash SHA-256.
+ * referenceCount cuenta los adjuntos que lo usan; al llegar a 0 el archivo se encola para borrarse
+ * y la fila se elimina junto con él, salvo que una subida nueva vuelva a referenciarlo antes.
+ */
+@Entity
+@Table(name = "file_blob", indexes = {
+        @Index(name = "idx_file_blob_file_name", columnList = "file_name")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileBlob {
+    @Id
+    @Column(length = 64)
+    private String digest;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private int referenceCount;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
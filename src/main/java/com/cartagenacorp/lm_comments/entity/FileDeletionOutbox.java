@@ -0,0 +1,37 @@
+package com.cartagenacorp.lm_comments.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "file_deletion_outbox", indexes = {
+        @Index(name = "idx_file_deletion_outbox_next_attempt", columnList = "next_attempt_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileDeletionOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+}
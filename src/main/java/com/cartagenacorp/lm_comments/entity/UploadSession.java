@@ -0,0 +1,53 @@
+package com.cartagenacorp.lm_comments.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "upload_session", indexes = {
+        @Index(name = "idx_upload_session_expires_at", columnList = "expires_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private UUID organizationId;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private long totalSize;
+
+    @Column(nullable = false)
+    private int chunkSize;
+
+    @Column(nullable = false)
+    private int totalChunks;
+
+    // OPEN mientras se reciben partes, COMPLETED cuando ya se adjuntó a un comentario
+    @Column(nullable = false)
+    private String status;
+
+    // Adjunto creado al finalizar; permite repetir la finalización sin duplicarlo
+    private UUID attachmentId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -3,14 +3,17 @@ package com.cartagenacorp.lm_comments.mapper;
 import com.cartagenacorp.lm_comments.dto.CommentDTO;
 import com.cartagenacorp.lm_comments.entity.Comment;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
 @Mapper(componentModel = "spring", uses = {FileAttachmentMapper.class})
 public interface CommentMapper {
 
+    @Mapping(target = "responsesCount", ignore = true)
     Comment commentDTOToComment(CommentDTO commentDTO);
 
+    @Mapping(target = "latestResponses", ignore = true)
     CommentDTO commentToCommentDTO(Comment comment);
 
     List<CommentDTO> commentsToCommentDTOs(List<Comment> comments);
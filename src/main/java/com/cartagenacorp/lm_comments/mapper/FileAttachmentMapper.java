@@ -10,12 +10,31 @@ import java.util.List;
 @Mapper(componentModel = "spring")
 public interface FileAttachmentMapper {
     @Mapping(target = "commentId", source = "comment.id")
+    @Mapping(target = "fileName", expression = "java(displayName(fileAttachment))")
+    @Mapping(target = "thumbnailUrl", expression = "java(thumbnailUrl(fileAttachment))")
     FileAttachmentDTO fileToFileDTO(FileAttachment fileAttachment);
 
     @Mapping(target = "comment.id", source = "commentId")
+    @Mapping(target = "blob", ignore = true)
+    @Mapping(target = "thumbnailFileName", ignore = true)
+    @Mapping(target = "originalFileName", ignore = true)
     FileAttachment fileDTOToFile(FileAttachmentDTO fileAttachmentDTO);
 
     List<FileAttachmentDTO> filesToFileDTOs(List<FileAttachment> fileAttachments);
 
     List<FileAttachment> fileDTOsToFiles(List<FileAttachmentDTO> fileAttachmentDTOS);
+
+    // Con deduplicación la clave de almacenamiento es el hash; al cliente se le muestra el nombre subido
+    default String displayName(FileAttachment fileAttachment) {
+        return fileAttachment.getOriginalFileName() != null
+                ? fileAttachment.getOriginalFileName()
+                : fileAttachment.getFileName();
+    }
+
+    // Las miniaturas se sirven por el endpoint autorizado de adjuntos, nunca por la ruta pública de /uploads
+    default String thumbnailUrl(FileAttachment fileAttachment) {
+        return fileAttachment.getThumbnailFileName() != null
+                ? "/api/comments/attachments/" + fileAttachment.getId() + "/thumbnail"
+                : null;
+    }
 }
@@ -1,11 +1,17 @@
 package com.cartagenacorp.lm_comments.repository;
 
+import com.cartagenacorp.lm_comments.dto.IssueCommentCountDto;
 import com.cartagenacorp.lm_comments.entity.Comment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -13,4 +19,49 @@ import java.util.UUID;
 public interface CommentRepository extends JpaRepository<Comment, UUID> {
     Page<Comment> findByIssueId(UUID issueId, Pageable pageable);
     List<Comment> findByIssueId(UUID issueId);
+    long countByIssueId(UUID issueId);
+
+    // responsesCount está desnormalizado, así que una sola agregación sobre comment da ambos totales
+    @Query("SELECT new com.cartagenacorp.lm_comments.dto.IssueCommentCountDto(c.issueId, COUNT(c), " +
+            "COALESCE(SUM(c.responsesCount), 0)) " +
+            "FROM Comment c WHERE c.organizationId = :organizationId AND c.issueId IN :issueIds GROUP BY c.issueId")
+    List<IssueCommentCountDto> countByIssueIds(@Param("organizationId") UUID organizationId,
+                                               @Param("issueIds") Collection<UUID> issueIds);
+
+    @Query("SELECT c.id FROM Comment c WHERE c.issueId = :issueId")
+    List<UUID> findIdsByIssueId(@Param("issueId") UUID issueId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.issueId = :issueId ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findFirstKeysetPage(@Param("issueId") UUID issueId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.issueId = :issueId AND (c.createdAt, c.id) < (:createdAt, :id) " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findKeysetPageAfter(@Param("issueId") UUID issueId, @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") UUID id, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.issueId = :issueId AND (c.createdAt, c.id) > (:createdAt, :id) " +
+            "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findKeysetPageBefore(@Param("issueId") UUID issueId, @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") UUID id, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Comment c SET c.responsesCount = c.responsesCount + 1 WHERE c.id = :commentId")
+    int incrementResponsesCount(@Param("commentId") UUID commentId);
+
+    @Modifying
+    @Query("UPDATE Comment c SET c.responsesCount = c.responsesCount - 1 WHERE c.id = :commentId AND c.responsesCount > 0")
+    int decrementResponsesCount(@Param("commentId") UUID commentId);
+
+    @Query("SELECT c.id FROM Comment c ORDER BY c.id")
+    List<UUID> findFirstIdBatch(Pageable pageable);
+
+    @Query("SELECT c.id FROM Comment c WHERE c.id > :id ORDER BY c.id")
+    List<UUID> findIdBatchAfter(@Param("id") UUID id, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Comment c SET c.responsesCount = " +
+            "(SELECT COUNT(r) FROM CommentResponses r WHERE r.comment.id = c.id) " +
+            "WHERE c.id IN :ids " +
+            "AND c.responsesCount <> (SELECT COUNT(r) FROM CommentResponses r WHERE r.comment.id = c.id)")
+    int reconcileResponsesCounts(@Param("ids") Collection<UUID> ids);
 }
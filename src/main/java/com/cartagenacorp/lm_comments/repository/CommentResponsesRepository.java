@@ -1,17 +1,43 @@
 package com.cartagenacorp.lm_comments.repository;
 
 import com.cartagenacorp.lm_comments.entity.CommentResponses;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface CommentResponsesRepository extends JpaRepository<CommentResponses, UUID> {
-    List<CommentResponses> findByCommentId(UUID commentId);
+    // Las respuestas se listan de la más antigua a la más reciente, como se lee un hilo
+    @Query("SELECT r FROM CommentResponses r WHERE r.comment.id = :commentId ORDER BY r.createdAt ASC, r.id ASC")
+    List<CommentResponses> findFirstKeysetPage(@Param("commentId") UUID commentId, Pageable pageable);
 
-    @Query("SELECT cr.comment.id, COUNT(cr) FROM CommentResponses cr WHERE cr.comment.id IN :commentIds GROUP BY cr.comment.id")
-    List<Object[]> countByCommentIds(@Param("commentIds") List<UUID> commentIds);
+    @Query("SELECT r FROM CommentResponses r WHERE r.comment.id = :commentId AND (r.createdAt, r.id) > (:createdAt, :id) " +
+            "ORDER BY r.createdAt ASC, r.id ASC")
+    List<CommentResponses> findKeysetPageAfter(@Param("commentId") UUID commentId,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") UUID id, Pageable pageable);
 
-}
\ No newline at end of file
+    @Query("SELECT r FROM CommentResponses r WHERE r.comment.id = :commentId AND (r.createdAt, r.id) < (:createdAt, :id) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<CommentResponses> findKeysetPageBefore(@Param("commentId") UUID commentId,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") UUID id, Pageable pageable);
+
+    // Las últimas respuestas de cada comentario en una sola consulta, devueltas en orden de lectura
+    @Query(value = "SELECT t.id, t.comment_id, t.user_id, t.text, t.created_at FROM (" +
+            "SELECT r.*, ROW_NUMBER() OVER (PARTITION BY r.comment_id ORDER BY r.created_at DESC, r.id DESC) AS rn " +
+            "FROM comment_responses r WHERE r.comment_id IN (:commentIds)) t " +
+            "WHERE t.rn <= :limit ORDER BY t.comment_id, t.created_at, t.id", nativeQuery = true)
+    List<CommentResponses> findLatestByCommentIds(@Param("commentIds") Collection<UUID> commentIds,
+                                                  @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM CommentResponses cr WHERE cr.comment.id IN :commentIds")
+    int deleteByCommentIds(@Param("commentIds") Collection<UUID> commentIds);
+}
@@ -0,0 +1,104 @@
+package com.cartagenacorp.lm_comments.repository;
+
+import com.cartagenacorp.lm_comments.dto.CommentSearchHitDto;
+import com.cartagenacorp.lm_comments.util.SearchCursor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Búsqueda de texto sobre comentarios y respuestas con las columnas tsvector que crea
+ * CommentSearchIndexInitializer. Los filtros opcionales se añaden a la consulta solo si vienen,
+ * así el planificador no tiene que tratar parámetros nulos y puede usar los índices GIN.
+ */
+@Repository
+public class CommentSearchRepository {
+
+    public static final String SEARCH_CONFIG = "simple";
+    public static final String SEARCH_COLUMN = "text_search";
+
+    private static final RowMapper<CommentSearchHitDto> HIT_MAPPER = (rs, rowNum) -> new CommentSearchHitDto(
+            CommentSearchHitDto.Type.valueOf(rs.getString("type")),
+            rs.getObject("id", UUID.class),
+            rs.getObject("comment_id", UUID.class),
+            rs.getObject("issue_id", UUID.class),
+            rs.getObject("user_id", UUID.class),
+            rs.getString("text"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getFloat("rank"),
+            null
+    );
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CommentSearchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Resultados ordenados por relevancia y, a igualdad, del más reciente al más antiguo,
+     * empezando después de la posición indicada.
+     */
+    public List<CommentSearchHitDto> search(Filter filter, SearchCursor after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("organizationId", filter.organizationId())
+                .addValue("query", filter.query())
+                .addValue("limit", limit);
+
+        StringBuilder commentConditions = new StringBuilder("c.organization_id = :organizationId AND c.")
+                .append(SEARCH_COLUMN).append(" @@ q.query");
+        StringBuilder responseConditions = new StringBuilder("c.organization_id = :organizationId AND r.")
+                .append(SEARCH_COLUMN).append(" @@ q.query");
+        if (filter.issueId() != null) {
+            params.addValue("issueId", filter.issueId());
+            commentConditions.append(" AND c.issue_id = :issueId");
+            responseConditions.append(" AND c.issue_id = :issueId");
+        }
+        if (filter.userId() != null) {
+            params.addValue("userId", filter.userId());
+            commentConditions.append(" AND c.user_id = :userId");
+            responseConditions.append(" AND r.user_id = :userId");
+        }
+        if (filter.from() != null) {
+            params.addValue("from", filter.from());
+            commentConditions.append(" AND c.created_at >= :from");
+            responseConditions.append(" AND r.created_at >= :from");
+        }
+        if (filter.to() != null) {
+            params.addValue("to", filter.to());
+            commentConditions.append(" AND c.created_at < :to");
+            responseConditions.append(" AND r.created_at < :to");
+        }
+
+        String tsQuery = "websearch_to_tsquery('" + SEARCH_CONFIG + "', :query) AS q(query)";
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT hits.* FROM (")
+                .append("SELECT 'COMMENT' AS type, c.id, c.id AS comment_id, c.issue_id, c.user_id, c.text, c.created_at, ")
+                .append("ts_rank(c.").append(SEARCH_COLUMN).append(", q.query) AS rank ")
+                .append("FROM comment c CROSS JOIN ").append(tsQuery)
+                .append(" WHERE ").append(commentConditions)
+                .append(" UNION ALL ")
+                .append("SELECT 'RESPONSE', r.id, r.comment_id, c.issue_id, r.user_id, r.text, r.created_at, ")
+                .append("ts_rank(r.").append(SEARCH_COLUMN).append(", q.query) ")
+                .append("FROM comment_responses r JOIN comment c ON c.id = r.comment_id CROSS JOIN ").append(tsQuery)
+                .append(" WHERE ").append(responseConditions)
+                .append(") hits");
+        if (after != null) {
+            params.addValue("afterRank", after.rank())
+                    .addValue("afterCreatedAt", after.createdAt())
+                    .addValue("afterId", after.id());
+            sql.append(" WHERE (hits.rank, hits.created_at, hits.id) < (:afterRank, :afterCreatedAt, :afterId)");
+        }
+        sql.append(" ORDER BY hits.rank DESC, hits.created_at DESC, hits.id DESC LIMIT :limit");
+
+        return jdbcTemplate.query(sql.toString(), params, HIT_MAPPER);
+    }
+
+    public record Filter(UUID organizationId, String query, UUID issueId, UUID userId,
+                         LocalDateTime from, LocalDateTime to) {}
+}
@@ -1,11 +1,72 @@
 package com.cartagenacorp.lm_comments.repository;
 
 import com.cartagenacorp.lm_comments.entity.FileAttachment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface FileAttachmentRepository extends JpaRepository<FileAttachment, UUID> {
+    @EntityGraph(attributePaths = {"comment", "blob"})
+    Optional<FileAttachment> findWithCommentAndBlobById(UUID id);
+
+    @Query("SELECT a.fileName AS fileName, b.digest AS blobDigest, a.thumbnailFileName AS thumbnailFileName " +
+            "FROM FileAttachment a LEFT JOIN a.blob b " +
+            "WHERE a.comment.id IN :commentIds")
+    List<StoredFile> findStoredFilesByCommentIds(@Param("commentIds") Collection<UUID> commentIds);
+
+    @Modifying
+    @Query("DELETE FROM FileAttachment a WHERE a.comment.id IN :commentIds")
+    int deleteByCommentIds(@Param("commentIds") Collection<UUID> commentIds);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileAttachment a SET a.thumbnailFileName = :thumbnailFileName, a.placeholder = :placeholder " +
+            "WHERE a.id = :id")
+    int updateThumbnail(@Param("id") UUID id, @Param("thumbnailFileName") String thumbnailFileName,
+                        @Param("placeholder") String placeholder);
+
+    @Query("SELECT a.id AS id, a.fileName AS fileName, b.digest AS blobDigest, b.size AS blobSize, " +
+            "c.createdAt AS commentCreatedAt " +
+            "FROM FileAttachment a JOIN a.comment c LEFT JOIN a.blob b " +
+            "WHERE a.checksum IS NULL AND a.id > :afterId ORDER BY a.id")
+    List<MissingMetadata> findMissingMetadata(@Param("afterId") UUID afterId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileAttachment a SET a.size = :size, a.contentType = :contentType, a.checksum = :checksum, " +
+            "a.createdAt = :createdAt WHERE a.id = :id")
+    int updateMetadata(@Param("id") UUID id, @Param("size") long size, @Param("contentType") String contentType,
+                       @Param("checksum") String checksum, @Param("createdAt") LocalDateTime createdAt);
+
+    interface StoredFile {
+        String getFileName();
+
+        String getBlobDigest();
+
+        String getThumbnailFileName();
+    }
+
+    interface MissingMetadata {
+        UUID getId();
+
+        String getFileName();
+
+        String getBlobDigest();
+
+        Long getBlobSize();
+
+        LocalDateTime getCommentCreatedAt();
+    }
 }
@@ -0,0 +1,53 @@
+package com.cartagenacorp.lm_comments.repository;
+
+import com.cartagenacorp.lm_comments.entity.FileBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    // Upsert atómico: dos subidas simultáneas del mismo contenido no chocan con la clave primaria
+    @Modifying
+    @Query(value = "INSERT INTO file_blob (digest, file_name, size, reference_count, created_at) " +
+            "VALUES (:digest, :fileName, :size, 1, :createdAt) " +
+            "ON CONFLICT (digest) DO UPDATE SET reference_count = file_blob.reference_count + 1",
+            nativeQuery = true)
+    int addReference(@Param("digest") String digest, @Param("fileName") String fileName,
+                     @Param("size") long size, @Param("createdAt") LocalDateTime createdAt);
+
+    // Fila sin referencias para un archivo que quedó almacenado por una subida revertida. Si otra subida ya
+    // insertó el blob, espera a que confirme o revierta y no lo modifica.
+    @Modifying
+    @Query(value = "INSERT INTO file_blob (digest, file_name, size, reference_count, created_at) " +
+            "VALUES (:digest, :fileName, :size, 0, :createdAt) " +
+            "ON CONFLICT (digest) DO NOTHING",
+            nativeQuery = true)
+    int addUnreferenced(@Param("digest") String digest, @Param("fileName") String fileName,
+                        @Param("size") long size, @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.referenceCount = b.referenceCount - :count WHERE b.digest = :digest")
+    int removeReferences(@Param("digest") String digest, @Param("count") int count);
+
+    @Query("SELECT b.fileName FROM FileBlob b WHERE b.digest IN :digests AND b.referenceCount <= 0")
+    List<String> findUnreferencedFileNames(@Param("digests") Collection<String> digests);
+
+    // Bloquea el blob para que una subida concurrente del mismo contenido espere a que se borre el archivo
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM FileBlob b WHERE b.fileName IN :fileNames AND b.referenceCount <= 0")
+    List<FileBlob> lockUnreferencedByFileNames(@Param("fileNames") Collection<String> fileNames);
+
+    @Query("SELECT b.fileName FROM FileBlob b WHERE b.fileName IN :fileNames AND b.referenceCount > 0")
+    Set<String> findReferencedFileNames(@Param("fileNames") Collection<String> fileNames);
+}
@@ -0,0 +1,33 @@
+package com.cartagenacorp.lm_comments.repository;
+
+import com.cartagenacorp.lm_comments.entity.FileDeletionOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface FileDeletionOutboxRepository extends JpaRepository<FileDeletionOutbox, UUID> {
+
+    // lock.timeout = -2 -> SKIP LOCKED: varias instancias pueden procesar la cola sin bloquearse
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM FileDeletionOutbox o WHERE o.nextAttemptAt <= :now AND o.attempts < :maxAttempts " +
+            "ORDER BY o.nextAttemptAt")
+    List<FileDeletionOutbox> findReadyForProcessing(@Param("now") LocalDateTime now,
+                                                    @Param("maxAttempts") int maxAttempts, Pageable pageable);
+
+    long countByAttemptsLessThan(int maxAttempts);
+
+    @Query("SELECT MIN(o.createdAt) FROM FileDeletionOutbox o WHERE o.attempts < :maxAttempts")
+    LocalDateTime findOldestPendingCreatedAt(@Param("maxAttempts") int maxAttempts);
+}
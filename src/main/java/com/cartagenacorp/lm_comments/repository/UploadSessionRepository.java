@@ -0,0 +1,29 @@
+package com.cartagenacorp.lm_comments.repository;
+
+import com.cartagenacorp.lm_comments.entity.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    Optional<UploadSession> findByIdAndUserId(UUID id, UUID userId);
+
+    // Serializa finalizaciones concurrentes de la misma sesión
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id AND s.userId = :userId")
+    Optional<UploadSession> findForUpdate(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    @Query("SELECT s.id FROM UploadSession s WHERE s.expiresAt < :now ORDER BY s.expiresAt")
+    List<UUID> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+}
@@ -0,0 +1,144 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.repository.FileAttachmentRepository;
+import com.cartagenacorp.lm_comments.storage.FileStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Rellena tamaño, tipo de contenido, checksum y fecha de creación de los adjuntos guardados antes de que
+ * existieran esas columnas; la fecha es la del comentario. Los adjuntos deduplicados toman los datos de su
+ * blob sin leer el archivo, el resto se lee una vez para calcular el SHA-256.
+ */
+@Service
+public class AttachmentMetadataBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentMetadataBackfillService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileAttachmentRepository fileAttachmentRepository;
+    private final FileStorage fileStorage;
+    private final Counter updatedAttachments;
+    private final Counter missingAttachments;
+    private final Counter failedAttachments;
+
+    @Value("${app.attachment-metadata-backfill.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.attachment-metadata-backfill.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.attachment-metadata-backfill.pause-between-batches:1s}")
+    private Duration pauseBetweenBatches;
+
+    public AttachmentMetadataBackfillService(FileAttachmentRepository fileAttachmentRepository, FileStorage fileStorage,
+                                             MeterRegistry meterRegistry) {
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.fileStorage = fileStorage;
+        this.updatedAttachments = Counter.builder("attachments.metadata.backfill")
+                .tag("result", "updated")
+                .register(meterRegistry);
+        this.missingAttachments = Counter.builder("attachments.metadata.backfill")
+                .tag("result", "missing")
+                .register(meterRegistry);
+        this.failedAttachments = Counter.builder("attachments.metadata.backfill")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (enabled) {
+            Thread.ofPlatform().name("attachment-metadata-backfill").daemon(true).start(this::backfill);
+        }
+    }
+
+    public void backfill() {
+        logger.info("Iniciando el backfill de metadatos de adjuntos");
+        long updated = 0;
+        long skipped = 0;
+        // Recorrido por id: los adjuntos sin archivo no se vuelven a leer en la misma ejecución
+        UUID afterId = new UUID(0, 0);
+        try {
+            List<FileAttachmentRepository.MissingMetadata> batch;
+            do {
+                batch = fileAttachmentRepository.findMissingMetadata(afterId, PageRequest.of(0, batchSize));
+                for (FileAttachmentRepository.MissingMetadata attachment : batch) {
+                    if (backfill(attachment)) {
+                        updated++;
+                    } else {
+                        skipped++;
+                    }
+                    afterId = attachment.getId();
+                }
+                if (!batch.isEmpty()) {
+                    logger.info("Backfill de metadatos en curso: {} actualizados, {} omitidos", updated, skipped);
+                    Thread.sleep(pauseBetweenBatches);
+                }
+            } while (batch.size() == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Backfill de metadatos interrumpido");
+        }
+        logger.info("Backfill de metadatos finalizado: {} actualizados, {} omitidos", updated, skipped);
+    }
+
+    private boolean backfill(FileAttachmentRepository.MissingMetadata attachment) {
+        String contentType = FileAttachmentService.contentTypeOf(attachment.getFileName());
+        LocalDateTime createdAt = attachment.getCommentCreatedAt();
+        if (attachment.getBlobDigest() != null) {
+            fileAttachmentRepository.updateMetadata(attachment.getId(), attachment.getBlobSize(), contentType,
+                    attachment.getBlobDigest(), createdAt);
+            updatedAttachments.increment();
+            return true;
+        }
+
+        try {
+            Optional<Resource> resource = fileStorage.load(attachment.getFileName());
+            if (resource.isEmpty()) {
+                missingAttachments.increment();
+                logger.warn("No se encontró el archivo {} del adjunto {}", attachment.getFileName(), attachment.getId());
+                return false;
+            }
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = new DigestInputStream(resource.get().getInputStream(), sha256)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                }
+            }
+            fileAttachmentRepository.updateMetadata(attachment.getId(), size, contentType,
+                    HexFormat.of().formatHex(sha256.digest()), createdAt);
+            updatedAttachments.increment();
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            failedAttachments.increment();
+            logger.warn("No se pudieron calcular los metadatos del adjunto {}: {}", attachment.getId(), e.getMessage());
+            return false;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.cartagenacorp.lm_comments.service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Se publica al guardar adjuntos; los listeners que dependen de las filas lo reciben tras el commit.
+ */
+public record AttachmentsSavedEvent(List<UUID> attachmentIds) {
+}
@@ -0,0 +1,419 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.FileAttachmentDTO;
+import com.cartagenacorp.lm_comments.dto.UploadSessionDto;
+import com.cartagenacorp.lm_comments.entity.Comment;
+import com.cartagenacorp.lm_comments.entity.FileAttachment;
+import com.cartagenacorp.lm_comments.entity.UploadSession;
+import com.cartagenacorp.lm_comments.exception.FileStorageException;
+import com.cartagenacorp.lm_comments.mapper.FileAttachmentMapper;
+import com.cartagenacorp.lm_comments.repository.CommentRepository;
+import com.cartagenacorp.lm_comments.repository.FileAttachmentRepository;
+import com.cartagenacorp.lm_comments.repository.UploadSessionRepository;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Subidas por partes reanudables. Cada parte se escribe directamente a disco mientras se lee la petición,
+ * así que el tamaño del archivo no depende de los límites de multipart ni de la memoria disponible.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final String STATUS_OPEN = "OPEN";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CLEANUP_BATCH_SIZE = 500;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final CommentRepository commentRepository;
+    private final FileAttachmentRepository fileAttachmentRepository;
+    private final FileAttachmentService fileAttachmentService;
+    private final FileAttachmentMapper fileAttachmentMapper;
+    private final IssueExternalService issueExternalService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.chunked-upload.default-chunk-size:8MB}")
+    private DataSize defaultChunkSize;
+
+    @Value("${app.chunked-upload.min-chunk-size:1MB}")
+    private DataSize minChunkSize;
+
+    @Value("${app.chunked-upload.max-chunk-size:32MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${app.chunked-upload.max-file-size:2GB}")
+    private DataSize maxFileSize;
+
+    @Value("${app.chunked-upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    public ChunkedUploadService(UploadSessionRepository uploadSessionRepository, CommentRepository commentRepository,
+                                FileAttachmentRepository fileAttachmentRepository,
+                                FileAttachmentService fileAttachmentService, FileAttachmentMapper fileAttachmentMapper,
+                                IssueExternalService issueExternalService, PlatformTransactionManager transactionManager) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.commentRepository = commentRepository;
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.fileAttachmentService = fileAttachmentService;
+        this.fileAttachmentMapper = fileAttachmentMapper;
+        this.issueExternalService = issueExternalService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public UploadSessionDto createSession(UploadSessionDto request) {
+        String fileName = StringUtils.getFilename(request.getFileName());
+        if (!StringUtils.hasText(fileName)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File name is required");
+        }
+        if (request.getTotalSize() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Total size must be greater than 0");
+        }
+        if (request.getTotalSize() > maxFileSize.toBytes()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "The file size exceeds the allowed limit");
+        }
+        long chunkSize = request.getChunkSize() > 0 ? request.getChunkSize() : defaultChunkSize.toBytes();
+        if (chunkSize < minChunkSize.toBytes() || chunkSize > maxChunkSize.toBytes()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Chunk size must be between " + minChunkSize.toBytes() + " and " + maxChunkSize.toBytes() + " bytes");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = new UploadSession();
+        session.setUserId(JwtContextHolder.getUserId());
+        session.setOrganizationId(JwtContextHolder.getOrganizationId());
+        session.setFileName(fileName);
+        session.setTotalSize(request.getTotalSize());
+        session.setChunkSize((int) chunkSize);
+        session.setTotalChunks((int) ((request.getTotalSize() + chunkSize - 1) / chunkSize));
+        session.setStatus(STATUS_OPEN);
+        session.setCreatedAt(now);
+        session.setExpiresAt(now.plus(sessionTtl));
+        session = uploadSessionRepository.save(session);
+
+        logger.info("Sesión de subida {} creada para {} ({} bytes en {} partes)",
+                session.getId(), fileName, session.getTotalSize(), session.getTotalChunks());
+        return toDto(session, List.of());
+    }
+
+    public UploadSessionDto getSession(UUID sessionId) {
+        UploadSession session = findOwnedSession(sessionId);
+        return toDto(session, receivedChunks(session));
+    }
+
+    /**
+     * Escribe una parte en disco verificando su tamaño y su SHA-256. Reenviar una parte ya recibida
+     * la reemplaza, así que el cliente puede reintentar sin coordinarse con el servidor.
+     */
+    public UploadSessionDto writeChunk(UUID sessionId, int index, String checksum, InputStream body) {
+        UploadSession session = findOwnedSession(sessionId);
+        requireOpen(session);
+        if (index < 0 || index >= session.getTotalChunks()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Chunk index must be between 0 and " + (session.getTotalChunks() - 1));
+        }
+        if (!StringUtils.hasText(checksum)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk checksum is required");
+        }
+
+        long expectedSize = expectedChunkSize(session, index);
+        Path chunkDirectory = chunkDirectory(sessionId);
+        Path partFile = null;
+        try {
+            Files.createDirectories(chunkDirectory);
+            partFile = Files.createTempFile(chunkDirectory, index + ".", ".part");
+            MessageDigest sha256 = sha256();
+            long written = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(partFile, StandardOpenOption.TRUNCATE_EXISTING)) {
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    written += read;
+                    if (written > expectedSize) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Chunk " + index + " exceeds the expected size of " + expectedSize + " bytes");
+                    }
+                    sha256.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (written != expectedSize) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Chunk " + index + " must be " + expectedSize + " bytes, received " + written);
+            }
+            if (!HexFormat.of().formatHex(sha256.digest()).equalsIgnoreCase(checksum.trim())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Checksum mismatch for chunk " + index);
+            }
+
+            moveIntoPlace(partFile, chunkDirectory.resolve(Integer.toString(index)));
+            partFile = null;
+        } catch (IOException e) {
+            logger.error("Error al guardar la parte {} de la sesión de subida {}", index, sessionId, e);
+            throw new FileStorageException("Error saving chunk " + index, e);
+        } finally {
+            FileAttachmentService.deleteTempFile(partFile);
+        }
+        return toDto(session, receivedChunks(session));
+    }
+
+    /**
+     * Une las partes y adjunta el archivo al comentario. Las partes se unen antes de abrir la transacción
+     * para no retener una conexión mientras se copian archivos grandes.
+     */
+    public FileAttachmentDTO completeUpload(UUID sessionId, UUID commentId) {
+        UploadSession session = findOwnedSession(sessionId);
+        if (STATUS_COMPLETED.equals(session.getStatus())) {
+            return existingAttachment(session);
+        }
+        requireOpen(session);
+
+        List<Integer> missing = missingChunks(session);
+        if (!missing.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Upload is incomplete, missing chunks: " + missing.subList(0, Math.min(missing.size(), 20)));
+        }
+
+        Comment comment = commentRepository.findById(commentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Comment not found"));
+        if (!comment.getUserId().equals(session.getUserId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can only attach files to your own comments");
+        }
+        if (!issueExternalService.validateIssueAccess(comment.getIssueId(), JwtContextHolder.getToken())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
+        }
+
+        FileAttachmentService.StagedFile stagedFile = assemble(session);
+        try {
+            return transactionTemplate.execute(tx -> {
+                UploadSession locked = uploadSessionRepository.findForUpdate(sessionId, session.getUserId())
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload session not found"));
+                // Otra petición pudo completar la sesión mientras se unían las partes
+                if (STATUS_COMPLETED.equals(locked.getStatus())) {
+                    return existingAttachment(locked);
+                }
+
+                Comment target = commentRepository.findById(commentId)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Comment not found"));
+                FileAttachment attachment = fileAttachmentService.attachStagedFiles(target, List.of(stagedFile)).get(0);
+                locked.setStatus(STATUS_COMPLETED);
+                locked.setAttachmentId(attachment.getId());
+                deleteChunksAfterCommit(sessionId);
+
+                logger.info("Sesión de subida {} completada como adjunto {} del comentario {}",
+                        sessionId, attachment.getId(), commentId);
+                return fileAttachmentMapper.fileToFileDTO(attachment);
+            });
+        } finally {
+            FileAttachmentService.deleteTempFile(stagedFile.tempFile());
+        }
+    }
+
+    public void abortUpload(UUID sessionId) {
+        UploadSession session = findOwnedSession(sessionId);
+        uploadSessionRepository.delete(session);
+        deleteChunks(sessionId);
+        logger.info("Sesión de subida {} cancelada", sessionId);
+    }
+
+    /**
+     * Elimina las sesiones vencidas y sus partes. Las completadas ya no tienen partes en disco.
+     */
+    @Scheduled(fixedDelayString = "${app.chunked-upload.cleanup-interval:1h}")
+    public void cleanupExpiredSessions() {
+        int removed = 0;
+        List<UUID> expired;
+        do {
+            expired = uploadSessionRepository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, CLEANUP_BATCH_SIZE));
+            expired.forEach(this::deleteChunks);
+            uploadSessionRepository.deleteAllByIdInBatch(expired);
+            removed += expired.size();
+        } while (expired.size() == CLEANUP_BATCH_SIZE);
+
+        if (removed > 0) {
+            logger.info("{} sesiones de subida vencidas eliminadas", removed);
+        }
+    }
+
+    // Une las partes en un temporal calculando el SHA-256 del archivo completo en la misma pasada
+    private FileAttachmentService.StagedFile assemble(UploadSession session) {
+        Path chunkDirectory = chunkDirectory(session.getId());
+        Path target = null;
+        try {
+            target = fileAttachmentService.createTempFile();
+            MessageDigest sha256 = sha256();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (int index = 0; index < session.getTotalChunks(); index++) {
+                    try (FileChannel in = FileChannel.open(chunkDirectory.resolve(Integer.toString(index)))) {
+                        while (in.read(buffer) != -1) {
+                            buffer.flip();
+                            sha256.update(buffer.duplicate());
+                            while (buffer.hasRemaining()) {
+                                out.write(buffer);
+                            }
+                            buffer.clear();
+                        }
+                    }
+                }
+                if (out.size() != session.getTotalSize()) {
+                    throw new IOException("Assembled size " + out.size() + " does not match " + session.getTotalSize());
+                }
+            }
+            return new FileAttachmentService.StagedFile(session.getFileName(), target, session.getTotalSize(),
+                    HexFormat.of().formatHex(sha256.digest()));
+        } catch (NoSuchFileException e) {
+            FileAttachmentService.deleteTempFile(target);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload is incomplete, a chunk was removed");
+        } catch (IOException e) {
+            FileAttachmentService.deleteTempFile(target);
+            logger.error("Error al unir las partes de la sesión de subida {}", session.getId(), e);
+            throw new FileStorageException("Error assembling upload " + session.getId(), e);
+        }
+    }
+
+    private FileAttachmentDTO existingAttachment(UploadSession session) {
+        return fileAttachmentRepository.findById(session.getAttachmentId())
+                .map(fileAttachmentMapper::fileToFileDTO)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "Upload session already completed"));
+    }
+
+    // Una sesión de otro usuario se trata como inexistente para no revelar sus ids
+    private UploadSession findOwnedSession(UUID sessionId) {
+        return uploadSessionRepository.findByIdAndUserId(sessionId, JwtContextHolder.getUserId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload session not found"));
+    }
+
+    private static void requireOpen(UploadSession session) {
+        if (STATUS_COMPLETED.equals(session.getStatus())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Upload session already completed");
+        }
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Upload session expired");
+        }
+    }
+
+    private static long expectedChunkSize(UploadSession session, int index) {
+        long offset = (long) index * session.getChunkSize();
+        return Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+    }
+
+    private List<Integer> missingChunks(UploadSession session) {
+        Set<Integer> received = new HashSet<>(receivedChunks(session));
+        return IntStream.range(0, session.getTotalChunks())
+                .filter(index -> !received.contains(index))
+                .boxed()
+                .toList();
+    }
+
+    // Las partes completas se llaman "<índice>"; las que se están escribiendo llevan la extensión .part
+    private List<Integer> receivedChunks(UploadSession session) {
+        Path chunkDirectory = chunkDirectory(session.getId());
+        if (!Files.isDirectory(chunkDirectory)) {
+            return List.of();
+        }
+        List<Integer> received = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(chunkDirectory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.chars().allMatch(Character::isDigit)) {
+                    received.add(Integer.parseInt(name));
+                }
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Error reading chunks of upload " + session.getId(), e);
+        }
+        received.sort(null);
+        return received;
+    }
+
+    private void deleteChunksAfterCommit(UUID sessionId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteChunks(sessionId);
+            }
+        });
+    }
+
+    private void deleteChunks(UUID sessionId) {
+        Path chunkDirectory = chunkDirectory(sessionId);
+        if (!Files.isDirectory(chunkDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(chunkDirectory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(chunkDirectory);
+        } catch (IOException e) {
+            logger.warn("No se pudieron eliminar las partes de la sesión de subida {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private Path chunkDirectory(UUID sessionId) {
+        return Paths.get(uploadDir).resolve(".chunks").resolve(sessionId.toString());
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static UploadSessionDto toDto(UploadSession session, List<Integer> receivedChunks) {
+        return new UploadSessionDto(session.getId(), session.getFileName(), session.getTotalSize(),
+                session.getChunkSize(), session.getTotalChunks(), receivedChunks, session.getStatus(),
+                session.getAttachmentId(), session.getExpiresAt());
+    }
+}
@@ -0,0 +1,186 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.CommentImportBatchDto;
+import com.cartagenacorp.lm_comments.dto.CommentImportDto;
+import com.cartagenacorp.lm_comments.dto.CommentImportResultDto;
+import com.cartagenacorp.lm_comments.dto.CommentResponsesDto;
+import com.cartagenacorp.lm_comments.entity.Comment;
+import com.cartagenacorp.lm_comments.entity.CommentResponses;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Importa en bloque comentarios y respuestas de una issue, por ejemplo al migrar desde otro gestor.
+ * El acceso a la issue se valida una sola vez y cada lote se inserta en su propia transacción con
+ * inserciones JDBC por lotes, así que el tamaño de la importación no depende de la memoria.
+ */
+@Service
+public class CommentImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentImportService.class);
+    private static final int MAX_TEXT_LENGTH = 1000;
+
+    private final EntityManager entityManager;
+    private final IssueExternalService issueExternalService;
+    private final IssueCommentCountService issueCommentCountService;
+    private final ObjectReader importReader;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.comment-import.batch-size:1000}")
+    private int batchSize;
+
+    public CommentImportService(EntityManager entityManager, IssueExternalService issueExternalService,
+                                IssueCommentCountService issueCommentCountService, ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.issueExternalService = issueExternalService;
+        this.issueCommentCountService = issueCommentCountService;
+        this.importReader = objectMapper.readerFor(CommentImportDto.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Lee el cuerpo como NDJSON o como un array JSON sin cargarlo entero en memoria. Los lotes ya
+     * confirmados se conservan si un elemento posterior no es válido.
+     */
+    public CommentImportResultDto importComments(UUID issueId, InputStream body) {
+        String token = JwtContextHolder.getToken();
+        if (!issueExternalService.validateIssueExists(issueId, token)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The issue ID provided is not valid");
+        }
+        if (!issueExternalService.validateIssueAccess(issueId, token)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
+        }
+
+        UUID organizationId = JwtContextHolder.getOrganizationId();
+        long start = System.nanoTime();
+        long importedComments = 0;
+        long importedResponses = 0;
+        List<CommentImportBatchDto> batches = new ArrayList<>();
+        List<CommentImportDto> pending = new ArrayList<>(batchSize);
+
+        // MappingIterator recorre tanto valores separados por saltos de línea como los elementos de un array
+        try (MappingIterator<CommentImportDto> items = importReader.readValues(body)) {
+            long position = 0;
+            while (items.hasNextValue()) {
+                CommentImportDto item = items.nextValue();
+                validate(item, position++, importedComments);
+                pending.add(item);
+                if (pending.size() == batchSize) {
+                    CommentImportBatchDto batch = insertBatch(issueId, organizationId, pending, batches.size() + 1);
+                    batches.add(batch);
+                    importedComments += batch.getComments();
+                    importedResponses += batch.getResponses();
+                    pending.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid import body after " + (importedComments + pending.size()) + " comments: "
+                            + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read import body", e);
+        }
+        if (!pending.isEmpty()) {
+            CommentImportBatchDto batch = insertBatch(issueId, organizationId, pending, batches.size() + 1);
+            batches.add(batch);
+            importedComments += batch.getComments();
+            importedResponses += batch.getResponses();
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Importación de la issue {} finalizada: {} comentarios y {} respuestas en {} lotes ({} ms)",
+                issueId, importedComments, importedResponses, batches.size(), durationMs);
+        return new CommentImportResultDto(issueId, importedComments, importedResponses, durationMs, batches);
+    }
+
+    /**
+     * Los ids UUID se generan en memoria al hacer persist, sin consultar la base de datos, así que
+     * Hibernate puede agrupar todas las inserciones del lote. save() no sirve aquí: con un id ya
+     * asignado haría un merge con un SELECT por fila.
+     */
+    private CommentImportBatchDto insertBatch(UUID issueId, UUID organizationId, List<CommentImportDto> items,
+                                              int batchNumber) {
+        long start = System.nanoTime();
+        int responses = transactionTemplate.execute(tx -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            int inserted = 0;
+            for (CommentImportDto item : items) {
+                Comment comment = new Comment();
+                comment.setIssueId(issueId);
+                comment.setOrganizationId(organizationId);
+                comment.setUserId(item.getUserId());
+                comment.setText(item.getText());
+                comment.setCreatedAt(item.getCreatedAt() != null ? item.getCreatedAt() : LocalDateTime.now());
+                List<CommentResponsesDto> itemResponses = item.getResponses() != null ? item.getResponses() : List.of();
+                comment.setResponsesCount(itemResponses.size());
+                entityManager.persist(comment);
+
+                for (CommentResponsesDto itemResponse : itemResponses) {
+                    CommentResponses response = new CommentResponses();
+                    response.setComment(comment);
+                    response.setUserId(itemResponse.getUserId());
+                    response.setText(itemResponse.getText());
+                    response.setCreatedAt(itemResponse.getCreatedAt() != null
+                            ? itemResponse.getCreatedAt() : comment.getCreatedAt());
+                    entityManager.persist(response);
+                    inserted++;
+                }
+            }
+            return inserted;
+        });
+        issueCommentCountService.invalidate(organizationId, issueId);
+
+        long durationMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        double commentsPerSecond = items.size() * 1000.0 / durationMs;
+        logger.info("Lote {} de la importación de la issue {}: {} comentarios y {} respuestas en {} ms ({} comentarios/s)",
+                batchNumber, issueId, items.size(), responses, durationMs, Math.round(commentsPerSecond));
+        return new CommentImportBatchDto(batchNumber, items.size(), responses, durationMs, commentsPerSecond);
+    }
+
+    private static void validate(CommentImportDto item, long position, long importedComments) {
+        String error = null;
+        if (item.getUserId() == null) {
+            error = "userId is required";
+        } else if (!isValidText(item.getText())) {
+            error = "text must be between 1 and " + MAX_TEXT_LENGTH + " characters";
+        } else if (item.getResponses() != null) {
+            for (CommentResponsesDto response : item.getResponses()) {
+                if (response.getUserId() == null || !isValidText(response.getText())) {
+                    error = "responses require userId and a text between 1 and " + MAX_TEXT_LENGTH + " characters";
+                    break;
+                }
+            }
+        }
+        if (error != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid comment at position " + position + ": " + error + ". "
+                            + importedComments + " comments were imported before it");
+        }
+    }
+
+    private static boolean isValidText(String text) {
+        return StringUtils.hasText(text) && text.length() <= MAX_TEXT_LENGTH;
+    }
+}
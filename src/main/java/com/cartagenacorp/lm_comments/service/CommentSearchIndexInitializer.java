@@ -0,0 +1,89 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.repository.CommentSearchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Crea las columnas tsvector generadas y sus índices GIN que usa la búsqueda de texto. Hibernate no
+ * sabe declarar columnas generadas ni índices GIN, así que se crean aquí con sentencias idempotentes.
+ * Está desactivado por defecto: añadir la columna reescribe la tabla entera con un bloqueo exclusivo,
+ * así que se activa en una sola instancia y en una ventana de mantenimiento, y se vuelve a desactivar.
+ */
+@Service
+public class CommentSearchIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentSearchIndexInitializer.class);
+    private static final List<String> TABLES = List.of("comment", "comment_responses");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.comment-search.initialize-schema:false}")
+    private boolean initializeSchema;
+
+    public CommentSearchIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeOnStartup() {
+        if (initializeSchema) {
+            initialize();
+        }
+    }
+
+    public void initialize() {
+        for (String table : TABLES) {
+            String indexName = "idx_" + table + "_text_search";
+            try {
+                logger.warn("Añadiendo la columna de búsqueda de texto a la tabla {}; la tabla queda bloqueada mientras se reescribe", table);
+                jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS "
+                        + CommentSearchRepository.SEARCH_COLUMN + " tsvector GENERATED ALWAYS AS (to_tsvector('"
+                        + CommentSearchRepository.SEARCH_CONFIG + "', coalesce(text, ''))) STORED");
+
+                // Un CREATE INDEX CONCURRENTLY fallido deja un índice inválido que IF NOT EXISTS no volvería a crear
+                if (Boolean.FALSE.equals(isIndexValid(indexName))) {
+                    logger.warn("El índice {} quedó inválido en un intento anterior, se vuelve a crear", indexName);
+                    jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+                }
+                // CONCURRENTLY no bloquea las escrituras mientras se construye el índice
+                jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + indexName + " ON "
+                        + table + " USING GIN (" + CommentSearchRepository.SEARCH_COLUMN + ")");
+
+                if (!Boolean.TRUE.equals(isIndexValid(indexName))) {
+                    throw new IllegalStateException("Index " + indexName + " is not valid after creation");
+                }
+                logger.info("Índice de búsqueda de texto disponible en la tabla {}", table);
+            } catch (DataAccessException | IllegalStateException e) {
+                logger.error("No se pudo crear el índice de búsqueda de texto en la tabla {}: {}", table, e.getMessage());
+                dropInvalidIndex(indexName);
+            }
+        }
+    }
+
+    // null si el índice no existe
+    private Boolean isIndexValid(String indexName) {
+        List<Boolean> valid = jdbcTemplate.queryForList(
+                "SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ?",
+                Boolean.class, indexName);
+        return valid.isEmpty() ? null : valid.get(0);
+    }
+
+    private void dropInvalidIndex(String indexName) {
+        try {
+            if (Boolean.FALSE.equals(isIndexValid(indexName))) {
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+            }
+        } catch (DataAccessException e) {
+            logger.error("No se pudo eliminar el índice inválido {}: {}", indexName, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.CommentSearchHitDto;
+import com.cartagenacorp.lm_comments.dto.CursorPageResponseDTO;
+import com.cartagenacorp.lm_comments.dto.UserBasicDataDto;
+import com.cartagenacorp.lm_comments.repository.CommentSearchRepository;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.cartagenacorp.lm_comments.util.SearchCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Búsqueda de texto en los comentarios y respuestas de la organización del usuario. Los resultados de
+ * issues a las que no tiene acceso se descartan; el acceso se comprueba una vez por issue distinta y
+ * por lote de resultados, no por cada resultado.
+ */
+@Service
+public class CommentSearchService {
+
+    private final CommentSearchRepository commentSearchRepository;
+    private final IssueExternalService issueExternalService;
+    private final UserExternalService userExternalService;
+
+    // Límite de consultas por página cuando muchos resultados son de issues sin acceso
+    @Value("${app.comment-search.max-scan-rounds:5}")
+    private int maxScanRounds;
+
+    public CommentSearchService(CommentSearchRepository commentSearchRepository,
+                                IssueExternalService issueExternalService,
+                                UserExternalService userExternalService) {
+        this.commentSearchRepository = commentSearchRepository;
+        this.issueExternalService = issueExternalService;
+        this.userExternalService = userExternalService;
+    }
+
+    /**
+     * Si se alcanza el límite de consultas la página puede venir incompleta, pero siempre lleva cursor
+     * mientras queden resultados por revisar.
+     */
+    public CursorPageResponseDTO<CommentSearchHitDto> search(String query, UUID issueId, UUID userId,
+                                                            LocalDateTime from, LocalDateTime to,
+                                                            String cursor, int size) {
+        String token = JwtContextHolder.getToken();
+        if (issueId != null && !issueExternalService.validateIssueReadAccess(issueId, token)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
+        }
+
+        SearchCursor position = cursor != null ? SearchCursor.decode(cursor) : null;
+        CommentSearchRepository.Filter filter = new CommentSearchRepository.Filter(
+                JwtContextHolder.getOrganizationId(), query, issueId, userId, from, to);
+
+        Map<UUID, Boolean> issueAccess = new HashMap<>();
+        List<CommentSearchHitDto> page = new ArrayList<>(size);
+        boolean hasMore = false;
+        boolean exhausted = false;
+        for (int round = 0; round < maxScanRounds && !hasMore && !exhausted; round++) {
+            List<CommentSearchHitDto> rows = commentSearchRepository.search(filter, position, size + 1);
+            exhausted = rows.size() <= size;
+
+            Set<UUID> unchecked = rows.stream()
+                    .map(CommentSearchHitDto::getIssueId)
+                    .filter(id -> !issueAccess.containsKey(id))
+                    .collect(Collectors.toSet());
+            if (!unchecked.isEmpty()) {
+                IssueExternalService.IssuesReadAccess access = issueExternalService.checkIssuesReadAccess(unchecked, token);
+                if (!access.unavailable().isEmpty()) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Could not verify access to "
+                            + access.unavailable().size() + " issues, try again later");
+                }
+                unchecked.forEach(id -> issueAccess.put(id, access.readable().contains(id)));
+            }
+
+            for (CommentSearchHitDto row : rows) {
+                if (issueAccess.get(row.getIssueId())) {
+                    if (page.size() == size) {
+                        hasMore = true;
+                        break;
+                    }
+                    page.add(row);
+                }
+                position = new SearchCursor(row.getRank(), row.getCreatedAt(), row.getId());
+            }
+        }
+
+        enrichHits(page);
+        String nextCursor = (hasMore || !exhausted) && position != null ? position.encode() : null;
+        return new CursorPageResponseDTO<>(page, nextCursor, null, size, null);
+    }
+
+    private void enrichHits(List<CommentSearchHitDto> hits) {
+        List<String> userIds = hits.stream()
+                .map(hit -> hit.getUserId().toString())
+                .distinct()
+                .toList();
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, UserBasicDataDto> userMap = userExternalService.getUsersData(JwtContextHolder.getToken(), userIds)
+                .stream()
+                .collect(Collectors.toMap(UserBasicDataDto::getId, Function.identity()));
+
+        hits.forEach(hit -> hit.setUser(userMap.get(hit.getUserId())));
+    }
+}
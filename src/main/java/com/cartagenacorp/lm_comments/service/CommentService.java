@@ -1,6 +1,9 @@
 package com.cartagenacorp.lm_comments.service;
 
 import com.cartagenacorp.lm_comments.dto.CommentDTO;
+import com.cartagenacorp.lm_comments.dto.CursorPageResponseDTO;
+import com.cartagenacorp.lm_comments.dto.IssueCommentCountDto;
+import com.cartagenacorp.lm_comments.dto.IssuePurgeJobDto;
 import com.cartagenacorp.lm_comments.dto.PageResponseDTO;
 import com.cartagenacorp.lm_comments.dto.UserBasicDataDto;
 import com.cartagenacorp.lm_comments.entity.Comment;
@@ -11,36 +14,51 @@ import com.cartagenacorp.lm_comments.mapper.CommentMapper;
 import com.cartagenacorp.lm_comments.mapper.CommentResponsesMapper;
 import com.cartagenacorp.lm_comments.repository.CommentRepository;
 import com.cartagenacorp.lm_comments.repository.CommentResponsesRepository;
+import com.cartagenacorp.lm_comments.repository.FileAttachmentRepository;
 import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.cartagenacorp.lm_comments.util.PageCursor;
+import com.cartagenacorp.lm_comments.util.RequestContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CommentService {
 
     private static final Logger logger = LoggerFactory.getLogger(CommentService.class);
 
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    @Value("${app.external-calls.deadline:5s}")
+    private Duration externalCallsDeadline;
+
+    @Value("${app.responses-stream.batch-size:200}")
+    private int responsesStreamBatchSize;
 
     private final CommentRepository commentRepository;
     private final FileAttachmentService fileAttachmentService;
@@ -49,12 +67,19 @@ public class CommentService {
     private final CommentResponsesMapper commentResponsesMapper;
     private final UserExternalService userExternalService;
     private final IssueExternalService issueExternalService;
+    private final ExecutorService externalCallExecutor;
+    private final IssuePurgeService issuePurgeService;
+    private final IssueCommentCountService issueCommentCountService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
     public CommentService(CommentRepository commentRepository, FileAttachmentService fileAttachmentService,
                           CommentMapper commentMapper, CommentResponsesRepository commentResponsesRepository,
                           CommentResponsesMapper commentResponsesMapper, UserExternalService userExternalService,
-                          IssueExternalService issueExternalService) {
+                          IssueExternalService issueExternalService,
+                          @Qualifier("externalCallExecutor") ExecutorService externalCallExecutor,
+                          IssuePurgeService issuePurgeService, IssueCommentCountService issueCommentCountService,
+                          ObjectMapper objectMapper) {
         this.commentRepository = commentRepository;
         this.fileAttachmentService = fileAttachmentService;
         this.commentMapper = commentMapper;
@@ -62,6 +87,10 @@ public class CommentService {
         this.commentResponsesMapper = commentResponsesMapper;
         this.userExternalService = userExternalService;
         this.issueExternalService = issueExternalService;
+        this.externalCallExecutor = externalCallExecutor;
+        this.issuePurgeService = issuePurgeService;
+        this.issueCommentCountService = issueCommentCountService;
+        this.objectMapper = objectMapper;
     }
 
     @Transactional
@@ -69,57 +98,151 @@ public class CommentService {
         UUID userId = JwtContextHolder.getUserId();
         String token = JwtContextHolder.getToken();
         UUID organizationId = JwtContextHolder.getOrganizationId();
+        UUID issueId = commentDTO.getIssueId();
+        long deadline = System.nanoTime() + externalCallsDeadline.toNanos();
+
+        Future<List<UserBasicDataDto>> usersFuture = externalCallExecutor.submit(JwtContextHolder.propagate(
+                () -> userExternalService.getUsersData(token, List.of(userId.toString()))));
+        Future<Boolean> issueExistsFuture = externalCallExecutor.submit(JwtContextHolder.propagate(
+                () -> issueExternalService.validateIssueExists(issueId, token)));
+        Future<Boolean> issueAccessFuture = externalCallExecutor.submit(JwtContextHolder.propagate(
+                () -> issueExternalService.validateIssueAccess(issueId, token)));
+
+        try {
+            try {
+                if (!awaitExternalCall(issueExistsFuture, deadline)) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The issue ID provided is not valid");
+                }
+                if (!awaitExternalCall(issueAccessFuture, deadline)) {
+                    throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
+                }
+            } catch (TimeoutException e) {
+                throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "The issue service did not respond in time");
+            }
 
-        if (!issueExternalService.validateIssueExists(commentDTO.getIssueId(), token)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The issue ID provided is not valid");
-        }
+            commentDTO.setUserId(userId);
+            commentDTO.setOrganizationId(organizationId);
+            commentDTO.setCreatedAt(LocalDateTime.now());
+            Comment comment = commentRepository.save(commentMapper.commentDTOToComment(commentDTO));
+            issueCommentCountService.invalidate(organizationId, issueId);
 
-        if (!issueExternalService.validateIssueAccess(commentDTO.getIssueId(), JwtContextHolder.getToken())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
-        }
+            if (files != null && files.length > 0) {
+                List<FileAttachment> attachments = fileAttachmentService.saveFiles(comment, files);
+                comment.setAttachments(attachments);
+            }
+            CommentDTO savedDto = commentMapper.commentToCommentDTO(comment);
 
-        commentDTO.setUserId(userId);
-        commentDTO.setOrganizationId(organizationId);
-        commentDTO.setCreatedAt(LocalDateTime.now());
-        Comment comment = commentMapper.commentDTOToComment(commentDTO);
-        commentRepository.save(comment);
+            try {
+                List<UserBasicDataDto> users = awaitExternalCall(usersFuture, deadline);
+                if (!users.isEmpty()) {
+                    savedDto.setUser(users.get(0));
+                }
+            } catch (TimeoutException e) {
+                logger.warn("No se obtuvo la información del usuario {} a tiempo", userId);
+            }
 
-        if (files != null) {
-            List<FileAttachment> attachments = fileAttachmentService.saveFiles(comment, files);
-            comment.setAttachments(attachments);
+            return savedDto;
+        } finally {
+            usersFuture.cancel(true);
+            issueExistsFuture.cancel(true);
+            issueAccessFuture.cancel(true);
         }
-        Comment savedComment = commentRepository.save(comment);
-        CommentDTO savedDto = commentMapper.commentToCommentDTO(savedComment);
+    }
 
-        List<UserBasicDataDto> users = userExternalService.getUsersData(JwtContextHolder.getToken(), List.of(userId.toString()));
-        if (!users.isEmpty()) {
-            savedDto.setUser(users.get(0));
+    private <T> T awaitExternalCall(Future<T> future, long deadline) throws TimeoutException {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The request was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
         }
-
-        return savedDto;
     }
 
     @Transactional(readOnly = true)
-    public PageResponseDTO<CommentDTO> getCommentsByIssueId(UUID issueId, Pageable pageable) {
-        if (!issueExternalService.validateIssueAccess(issueId, JwtContextHolder.getToken())) {
+    public PageResponseDTO<CommentDTO> getCommentsByIssueId(UUID issueId, Pageable pageable, int latestResponses) {
+        if (!issueExternalService.validateIssueReadAccess(issueId, JwtContextHolder.getToken())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
         }
 
         Page<Comment> commentPage = commentRepository.findByIssueId(issueId, pageable);
         Page<CommentDTO> dtoPage = commentPage.map(commentMapper::commentToCommentDTO);
+        enrichComments(dtoPage.getContent(), latestResponses);
 
-        List<UUID> commentIds = dtoPage.getContent().stream()
-                .map(CommentDTO::getId)
-                .toList();
+        return new PageResponseDTO<>(dtoPage);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponseDTO<CommentDTO> getCommentsByIssueIdKeyset(UUID issueId, String cursor, int size,
+                                                                        boolean includeTotal, int latestResponses) {
+        if (!issueExternalService.validateIssueReadAccess(issueId, JwtContextHolder.getToken())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
+        }
+
+        PageCursor pageCursor = cursor != null ? PageCursor.decode(cursor) : null;
+        Pageable limit = PageRequest.of(0, size + 1);
+
+        List<Comment> rows;
+        if (pageCursor == null) {
+            rows = commentRepository.findFirstKeysetPage(issueId, limit);
+        } else if (pageCursor.forward()) {
+            rows = commentRepository.findKeysetPageAfter(issueId, pageCursor.createdAt(), pageCursor.id(), limit);
+        } else {
+            rows = commentRepository.findKeysetPageBefore(issueId, pageCursor.createdAt(), pageCursor.id(), limit);
+        }
+
+        KeysetPage<Comment> page = toKeysetPage(rows, size, pageCursor, Comment::getCreatedAt, Comment::getId);
+        List<CommentDTO> dtos = page.rows().stream().map(commentMapper::commentToCommentDTO).toList();
+        enrichComments(dtos, latestResponses);
 
-        Map<UUID, Long> responseCounts = commentResponsesRepository.countByCommentIds(commentIds).stream()
-                .collect(Collectors.toMap(
-                        tuple -> (UUID) tuple[0],
-                        tuple -> (Long) tuple[1]
-                ));
+        Long totalElements = includeTotal ? commentRepository.countByIssueId(issueId) : null;
+        return new CursorPageResponseDTO<>(dtos, page.nextCursor(), page.previousCursor(), size, totalElements);
+    }
+
+    /**
+     * Recorta la fila extra pedida para saber si hay más resultados y calcula los cursores de la página.
+     * Las páginas anteriores se consultan en orden inverso, así que se devuelven al orden del listado.
+     */
+    private static <E> KeysetPage<E> toKeysetPage(List<E> rows, int size, PageCursor pageCursor,
+                                                  Function<E, LocalDateTime> createdAt, Function<E, UUID> id) {
+        boolean hasMore = rows.size() > size;
+        List<E> page = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+        boolean backward = pageCursor != null && !pageCursor.forward();
+        if (backward) {
+            Collections.reverse(page);
+        }
+
+        String nextCursor = null;
+        String previousCursor = null;
+        if (!page.isEmpty()) {
+            E first = page.get(0);
+            E last = page.get(page.size() - 1);
+            if (backward || hasMore) {
+                nextCursor = PageCursor.next(createdAt.apply(last), id.apply(last)).encode();
+            }
+            if (backward ? hasMore : pageCursor != null) {
+                previousCursor = PageCursor.previous(createdAt.apply(first), id.apply(first)).encode();
+            }
+        }
+        return new KeysetPage<>(page, nextCursor, previousCursor);
+    }
 
-        List<UUID> userIds = dtoPage.getContent().stream()
-                .map(CommentDTO::getUserId)
+    /**
+     * Completa el autor de cada comentario y, si se piden, sus últimas respuestas. Los autores de los
+     * comentarios y de las respuestas se resuelven juntos en una sola llamada a auth.
+     */
+    private void enrichComments(List<CommentDTO> comments, int latestResponses) {
+        Map<UUID, List<CommentResponsesDto>> responsesByComment = latestResponses > 0
+                ? findLatestResponses(comments, latestResponses)
+                : Map.of();
+
+        List<UUID> userIds = Stream.concat(
+                        comments.stream().map(CommentDTO::getUserId),
+                        responsesByComment.values().stream().flatMap(List::stream).map(CommentResponsesDto::getUserId))
                 .filter(Objects::nonNull)
                 .distinct()
                 .toList();
@@ -129,18 +252,32 @@ public class CommentService {
                 userIds.stream().map(UUID::toString).toList()
         );
 
-        if (!users.isEmpty()) {
-            Map<UUID, UserBasicDataDto> userMap = users.stream()
-                    .collect(Collectors.toMap(UserBasicDataDto::getId, Function.identity()));
+        Map<UUID, UserBasicDataDto> userMap = users.stream()
+                .collect(Collectors.toMap(UserBasicDataDto::getId, Function.identity()));
 
-            dtoPage.forEach(dto -> {
-                UserBasicDataDto user = userMap.get(dto.getUserId());
-                dto.setUser(user);
-                dto.setResponsesCount(responseCounts.getOrDefault(dto.getId(), 0L).intValue());
-            });
+        comments.forEach(dto -> {
+            dto.setUser(userMap.get(dto.getUserId()));
+            if (latestResponses > 0) {
+                List<CommentResponsesDto> responses = responsesByComment.getOrDefault(dto.getId(), List.of());
+                responses.forEach(response -> response.setUser(userMap.get(response.getUserId())));
+                dto.setLatestResponses(responses);
+            }
+        });
+    }
+
+    private Map<UUID, List<CommentResponsesDto>> findLatestResponses(List<CommentDTO> comments, int limit) {
+        // Los comentarios sin respuestas no hace falta consultarlos
+        List<UUID> commentIds = comments.stream()
+                .filter(dto -> dto.getResponsesCount() != null && dto.getResponsesCount() > 0)
+                .map(CommentDTO::getId)
+                .toList();
+        if (commentIds.isEmpty()) {
+            return Map.of();
         }
 
-        return new PageResponseDTO<>(dtoPage);
+        return commentResponsesRepository.findLatestByCommentIds(commentIds, limit).stream()
+                .map(commentResponsesMapper::toDto)
+                .collect(Collectors.groupingBy(CommentResponsesDto::getCommentId));
     }
 
     @Transactional
@@ -152,19 +289,12 @@ public class CommentService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
         }
 
-        List<FileAttachment> attachments = comment.getAttachments();
-        if (attachments != null) {
-            for (FileAttachment attachment : attachments) {
-                try {
-                    Path filePath = Paths.get(uploadDir, attachment.getFileName());
-                    Files.deleteIfExists(filePath);
-                } catch (IOException e) {
-                    logger.warn("The file could not be deleted: {}", attachment.getFileUrl(), e);
-                }
-            }
-        }
-
+        List<FileAttachmentRepository.StoredFile> storedFiles = fileAttachmentService.findStoredFiles(List.of(commentId));
         commentRepository.delete(comment);
+        // Los adjuntos deben borrarse antes de liberar sus blobs
+        commentRepository.flush();
+        fileAttachmentService.releaseFiles(storedFiles);
+        issueCommentCountService.invalidate(comment.getOrganizationId(), comment.getIssueId());
     }
 
     @Transactional
@@ -183,6 +313,8 @@ public class CommentService {
         CommentResponses response = commentResponsesMapper.toEntity(responseDto);
         response.setComment(comment);
         commentResponsesRepository.save(response);
+        commentRepository.incrementResponsesCount(comment.getId());
+        issueCommentCountService.invalidate(comment.getOrganizationId(), comment.getIssueId());
 
         CommentResponsesDto responsesDto = commentResponsesMapper.toDto(response);
 
@@ -195,23 +327,86 @@ public class CommentService {
     }
 
     @Transactional(readOnly = true)
-    public List<CommentResponsesDto> getResponsesByCommentId(UUID commentId) {
+    public CursorPageResponseDTO<CommentResponsesDto> getResponsesByCommentId(UUID commentId, String cursor, int size) {
+        Comment comment = findReadableComment(commentId);
+
+        PageCursor pageCursor = cursor != null ? PageCursor.decode(cursor) : null;
+        List<CommentResponses> rows = findResponsesPage(commentId, pageCursor, size + 1);
+        KeysetPage<CommentResponses> page = toKeysetPage(rows, size, pageCursor,
+                CommentResponses::getCreatedAt, CommentResponses::getId);
+
+        List<CommentResponsesDto> dtos = page.rows().stream().map(commentResponsesMapper::toDto).toList();
+        enrichResponses(dtos);
+
+        // responsesCount ya mantiene el total, no hace falta contar
+        return new CursorPageResponseDTO<>(dtos, page.nextCursor(), page.previousCursor(), size,
+                (long) comment.getResponsesCount());
+    }
+
+    /**
+     * Valida el acceso antes de empezar a responder y después escribe todas las respuestas como NDJSON,
+     * en lotes de tamaño fijo: cada lote es una consulta por clave y una sola llamada a auth.
+     */
+    public StreamingResponseBody streamResponsesByCommentId(UUID commentId) {
+        findReadableComment(commentId);
+        RequestContext context = JwtContextHolder.getContext();
+        // El cuerpo se escribe en otro hilo, fuera del contexto de la petición
+        return out -> JwtContextHolder.callWhere(context, () -> {
+            writeResponses(commentId, out);
+            return null;
+        });
+    }
+
+    private void writeResponses(UUID commentId, OutputStream out) throws IOException {
+        PageCursor pageCursor = null;
+        List<CommentResponses> batch;
+        do {
+            batch = findResponsesPage(commentId, pageCursor, responsesStreamBatchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<CommentResponsesDto> dtos = batch.stream().map(commentResponsesMapper::toDto).toList();
+            enrichResponses(dtos);
+            for (CommentResponsesDto dto : dtos) {
+                out.write(objectMapper.writeValueAsBytes(dto));
+                out.write('\n');
+            }
+            out.flush();
+
+            CommentResponses last = batch.get(batch.size() - 1);
+            pageCursor = PageCursor.next(last.getCreatedAt(), last.getId());
+        } while (batch.size() == responsesStreamBatchSize);
+    }
+
+    private List<CommentResponses> findResponsesPage(UUID commentId, PageCursor pageCursor, int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        if (pageCursor == null) {
+            return commentResponsesRepository.findFirstKeysetPage(commentId, pageable);
+        }
+        if (pageCursor.forward()) {
+            return commentResponsesRepository.findKeysetPageAfter(commentId, pageCursor.createdAt(), pageCursor.id(), pageable);
+        }
+        return commentResponsesRepository.findKeysetPageBefore(commentId, pageCursor.createdAt(), pageCursor.id(), pageable);
+    }
+
+    private Comment findReadableComment(UUID commentId) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Comment not found"));
 
-        if (!issueExternalService.validateIssueAccess(comment.getIssueId(), JwtContextHolder.getToken())) {
+        if (!issueExternalService.validateIssueReadAccess(comment.getIssueId(), JwtContextHolder.getToken())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
         }
+        return comment;
+    }
 
-        List<CommentResponses> responses = commentResponsesRepository.findByCommentId(commentId);
-        List<CommentResponsesDto> responsesDtos = responses.stream()
-                .map(commentResponsesMapper::toDto)
-                .collect(Collectors.toList());
-
-        List<String> userIds = responsesDtos.stream()
+    private void enrichResponses(List<CommentResponsesDto> responses) {
+        List<String> userIds = responses.stream()
                 .map(dto -> dto.getUserId().toString())
                 .distinct()
                 .collect(Collectors.toList());
+        if (userIds.isEmpty()) {
+            return;
+        }
 
         List<UserBasicDataDto> users = userExternalService.getUsersData(JwtContextHolder.getToken(), userIds);
 
@@ -219,10 +414,8 @@ public class CommentService {
             Map<UUID, UserBasicDataDto> userMap = users.stream()
                     .collect(Collectors.toMap(UserBasicDataDto::getId, Function.identity()));
 
-            responsesDtos.forEach(dto -> dto.setUser(userMap.get(dto.getUserId())));
+            responses.forEach(dto -> dto.setUser(userMap.get(dto.getUserId())));
         }
-
-        return responsesDtos;
     }
 
     @Transactional
@@ -238,31 +431,35 @@ public class CommentService {
         }
 
         commentResponsesRepository.delete(response);
+        commentRepository.decrementResponsesCount(comment.getId());
+        issueCommentCountService.invalidate(comment.getOrganizationId(), comment.getIssueId());
     }
 
-    @Transactional
     public void deleteCommentsByIssueId(UUID issueId) {
+        validateIssueDeleteAccess(issueId);
+        issuePurgeService.purge(issueId);
+    }
+
+    public IssuePurgeJobDto deleteCommentsByIssueIdAsync(UUID issueId) {
+        validateIssueDeleteAccess(issueId);
+        return issuePurgeService.purgeAsync(issueId);
+    }
+
+    public List<IssueCommentCountDto> getCommentCounts(Collection<UUID> issueIds) {
+        return issueCommentCountService.getCounts(issueIds);
+    }
+
+    public Optional<IssuePurgeJobDto> getIssuePurgeJob(UUID jobId) {
+        return issuePurgeService.getJob(jobId);
+    }
+
+    private record KeysetPage<E>(List<E> rows, String nextCursor, String previousCursor) {}
+
+    private void validateIssueDeleteAccess(UUID issueId) {
         if (!issueExternalService.validateIssueAccess(issueId, JwtContextHolder.getToken())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN,
                     "You do not have permission to access the content of this issue");
         }
-
-        List<Comment> comments = commentRepository.findByIssueId(issueId);
-
-        for (Comment comment : comments) {
-            if (comment.getAttachments() != null) {
-                for (FileAttachment attachment : comment.getAttachments()) {
-                    try {
-                        Path filePath = Paths.get(uploadDir, attachment.getFileName());
-                        Files.deleteIfExists(filePath);
-                    } catch (IOException e) {
-                        logger.warn("The file could not be deleted: {}", attachment.getFileUrl(), e);
-                    }
-                }
-            }
-
-            commentRepository.delete(comment);
-        }
     }
 
 }
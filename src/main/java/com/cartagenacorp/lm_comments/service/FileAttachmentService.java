@@ -2,29 +2,77 @@ package com.cartagenacorp.lm_comments.service;
 
 import com.cartagenacorp.lm_comments.entity.Comment;
 import com.cartagenacorp.lm_comments.entity.FileAttachment;
+import com.cartagenacorp.lm_comments.entity.FileBlob;
 import com.cartagenacorp.lm_comments.exception.FileStorageException;
 import com.cartagenacorp.lm_comments.repository.FileAttachmentRepository;
+import com.cartagenacorp.lm_comments.repository.FileBlobRepository;
+import com.cartagenacorp.lm_comments.storage.FileStorage;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 @Service
 public class FileAttachmentService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileAttachmentService.class);
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}$");
 
     private final FileAttachmentRepository fileAttachmentRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final FileDeletionOutboxService fileDeletionOutboxService;
+    private final FileStorage fileStorage;
+    private final IssueExternalService issueExternalService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService fileUploadExecutor;
+    private final TransactionTemplate requiresNewTransaction;
 
     @Value("${file.upload-dir}")
     private String uploadDir;
@@ -32,54 +80,327 @@ public class FileAttachmentService {
     @Value("${app.upload-access-url}")
     private String uploadAccessUrl;
 
-    public FileAttachmentService(FileAttachmentRepository fileAttachmentRepository) {
+    @Value("${file.deduplicate:false}")
+    private boolean deduplicate;
+
+    public FileAttachmentService(FileAttachmentRepository fileAttachmentRepository, FileBlobRepository fileBlobRepository,
+                                 FileDeletionOutboxService fileDeletionOutboxService, FileStorage fileStorage,
+                                 IssueExternalService issueExternalService, ApplicationEventPublisher eventPublisher,
+                                 @Qualifier("fileUploadExecutor") ExecutorService fileUploadExecutor,
+                                 PlatformTransactionManager transactionManager) {
         this.fileAttachmentRepository = fileAttachmentRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.fileDeletionOutboxService = fileDeletionOutboxService;
+        this.fileStorage = fileStorage;
+        this.issueExternalService = issueExternalService;
+        this.eventPublisher = eventPublisher;
+        this.fileUploadExecutor = fileUploadExecutor;
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
+    /**
+     * Escribe los archivos en paralelo y guarda sus filas en un único lote. Si algo falla, la excepción
+     * revierte la transacción y los archivos que ya se habían almacenado se encolan para borrarse.
+     */
     public List<FileAttachment> saveFiles(Comment comment, MultipartFile[] files) {
-        logger.info("Iniciando guardado de archivos adjuntos para el comentario con ID: {}", comment.getId());
-        List<FileAttachment> attachments = new ArrayList<>();
-
-        for (MultipartFile file : files) {
-            logger.info("Procesando archivo: {}", file.getOriginalFilename());
-            String fileName = saveFileToStorage(file);
-            String fileUrl = uploadAccessUrl + fileName;
-
-            FileAttachment attachment = new FileAttachment();
-            attachment.setComment(comment);
-            attachment.setFileName(fileName);
-            attachment.setFileUrl(fileUrl);
-
-            FileAttachment saved = fileAttachmentRepository.save(attachment);
-            attachments.add(saved);
-            logger.info("Archivo guardado en base de datos con ID: {}, URL: {}", saved.getId(), fileUrl);
+        List<Path> tempFiles = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<StagedFile> stagedFiles = runInParallel(Arrays.stream(files)
+                    .map(file -> (Callable<StagedFile>) () -> stageFile(file, tempFiles))
+                    .toList());
+            return attachStagedFiles(comment, stagedFiles);
+        } finally {
+            List.copyOf(tempFiles).forEach(FileAttachmentService::deleteTempFile);
         }
-
-        logger.info("Todos los archivos han sido procesados correctamente.");
-        return attachments;
     }
 
-    private String saveFileToStorage(MultipartFile file) {
+    /**
+     * Almacena archivos ya copiados a temporales locales y crea sus adjuntos. El llamador borra los temporales.
+     */
+    List<FileAttachment> attachStagedFiles(Comment comment, List<StagedFile> stagedFiles) {
         try {
-            Path directory = Paths.get(uploadDir);
-            if (!Files.exists(directory)) {
-                logger.info("Directorio de subida no existe. Creando: {}", directory.toAbsolutePath());
-                Files.createDirectories(directory);
-            }
+            List<String> storedFileNames = Collections.synchronizedList(new ArrayList<>());
+            Map<String, FileBlob> blobsByFileName = new HashMap<>();
+            releaseOnRollback(storedFileNames, blobsByFileName);
 
-            String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
-            Path filePath = directory.resolve(fileName);
+            LocalDateTime createdAt = LocalDateTime.now();
+            List<FileAttachment> attachments = new ArrayList<>();
+            Map<String, Path> pendingStores = new LinkedHashMap<>();
+            for (StagedFile stagedFile : stagedFiles) {
+                FileAttachment attachment = new FileAttachment();
+                String fileName;
+                if (deduplicate) {
+                    FileBlob blob = addBlobReference(stagedFile);
+                    attachment.setBlob(blob);
+                    fileName = blob.getFileName();
+                    blobsByFileName.put(fileName, blob);
+                    if (!pendingStores.containsKey(fileName) && !fileStorage.exists(fileName)) {
+                        pendingStores.put(fileName, stagedFile.tempFile());
+                    }
+                } else {
+                    fileName = UUID.randomUUID() + "_" + StringUtils.getFilename(stagedFile.originalName());
+                    pendingStores.put(fileName, stagedFile.tempFile());
+                }
+                attachment.setComment(comment);
+                attachment.setFileName(fileName);
+                attachment.setOriginalFileName(StringUtils.getFilename(stagedFile.originalName()));
+                attachment.setFileUrl(uploadAccessUrl + fileName);
+                attachment.setSize(stagedFile.size());
+                attachment.setContentType(contentTypeOf(stagedFile.originalName()));
+                attachment.setChecksum(stagedFile.digest());
+                attachment.setCreatedAt(createdAt);
+                attachments.add(attachment);
+            }
 
-            logger.info("Guardando archivo físicamente en: {}", filePath.toAbsolutePath());
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            runInParallel(pendingStores.entrySet().stream()
+                    .map(store -> (Callable<Void>) () -> {
+                        fileStorage.store(store.getKey(), store.getValue());
+                        storedFileNames.add(store.getKey());
+                        return null;
+                    })
+                    .toList());
 
+            // Con hibernate.jdbc.batch_size las filas se insertan en un solo lote al hacer flush
+            List<FileAttachment> saved = fileAttachmentRepository.saveAll(attachments);
+            logger.info("{} archivos adjuntos guardados para el comentario {}", saved.size(), comment.getId());
+            eventPublisher.publishEvent(new AttachmentsSavedEvent(saved.stream().map(FileAttachment::getId).toList()));
+            return saved;
+        } catch (IOException e) {
+            throw new FileStorageException("Error guardando los archivos adjuntos", e);
+        }
+    }
 
-            String fileAccessUrl = uploadAccessUrl + fileName;
-            logger.info("Archivo guardado correctamente. URL de acceso: {}", fileAccessUrl);
-            return fileName;
-        } catch (IOException e){
+    /**
+     * Copia el archivo a un temporal local calculando su SHA-256 y su tamaño en la misma pasada.
+     */
+    private StagedFile stageFile(MultipartFile file, List<Path> tempFiles) {
+        try {
+            Path tempFile = createTempFile();
+            tempFiles.add(tempFile);
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+                size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new StagedFile(file.getOriginalFilename(), tempFile, size, HexFormat.of().formatHex(sha256.digest()));
+        } catch (IOException e) {
             logger.error("Error al guardar archivo: {}", file.getOriginalFilename(), e);
             throw new FileStorageException("Error guardando el archivo: " + file.getOriginalFilename(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Guarda el contenido una sola vez bajo su hash SHA-256. Si ya existe un blob con el mismo hash
+     * solo se incrementa su contador de referencias.
+     */
+    private FileBlob addBlobReference(StagedFile stagedFile) {
+        String digest = stagedFile.digest();
+        // El upsert bloquea la fila del blob, así que el borrado en segundo plano no puede eliminar
+        // el archivo mientras esta transacción lo referencia.
+        fileBlobRepository.addReference(digest, digest + extensionOf(stagedFile.originalName()), stagedFile.size(),
+                LocalDateTime.now());
+        return fileBlobRepository.findById(digest)
+                .orElseThrow(() -> new IllegalStateException("Blob not found after insert: " + digest));
+    }
+
+    /**
+     * Si la transacción se revierte, las filas no llegan a existir y los archivos almacenados quedarían huérfanos.
+     * Un blob que esta subida creó tampoco llega a existir, pero otra subida del mismo contenido puede haberlo
+     * insertado ya sin confirmar y estar contando con el archivo. Por eso se deja una fila sin referencias para
+     * cada blob almacenado: el proceso de borrado la bloquea antes de borrar el archivo y lo conserva si
+     * otra subida la ha vuelto a referenciar.
+     */
+    private void releaseOnRollback(List<String> storedFileNames, Map<String, FileBlob> blobsByFileName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK || storedFileNames.isEmpty()) {
+                    return;
+                }
+                try {
+                    List<String> fileNames = List.copyOf(storedFileNames);
+                    requiresNewTransaction.executeWithoutResult(tx -> {
+                        LocalDateTime now = LocalDateTime.now();
+                        fileNames.stream()
+                                .map(blobsByFileName::get)
+                                .filter(Objects::nonNull)
+                                .sorted(Comparator.comparing(FileBlob::getDigest))
+                                .forEach(blob -> fileBlobRepository.addUnreferenced(blob.getDigest(), blob.getFileName(),
+                                        blob.getSize(), now));
+                        fileDeletionOutboxService.enqueue(fileNames);
+                    });
+                } catch (RuntimeException e) {
+                    logger.error("No se pudieron encolar para borrado los archivos {}", storedFileNames, e);
+                }
+            }
+        });
     }
+
+    private <T> List<T> runInParallel(List<Callable<T>> tasks) {
+        List<Future<T>> futures;
+        try {
+            futures = fileUploadExecutor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileStorageException("Interrupted while saving files", e);
+        }
+
+        // invokeAll espera a todas las tareas, así que ningún temporal sigue escribiéndose al limpiar
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause instanceof FileStorageException ? cause : new FileStorageException(cause.getMessage(), cause);
+                }
+                throw new FileStorageException("Error guardando los archivos adjuntos", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FileStorageException("Interrupted while saving files", e);
+            }
+        }
+        return results;
+    }
+
+    // Los archivos se escriben primero en un temporal local y luego se entregan al almacenamiento
+    Path createTempFile() throws IOException {
+        Path tempDirectory = Files.createDirectories(Paths.get(uploadDir).resolve(".tmp"));
+        return Files.createTempFile(tempDirectory, "upload-", ".part");
+    }
+
+    /**
+     * Prepara la descarga de un adjunto si el usuario tiene acceso a la issue de su comentario.
+     * Solo usa los metadatos guardados, así que las peticiones HEAD y condicionales no tocan el disco.
+     * El contenido de un adjunto nunca cambia: el ETag es su checksum o, en adjuntos antiguos sin
+     * metadatos, el hash del blob o su propio id.
+     */
+    @Transactional(readOnly = true)
+    public AttachmentDownload getAttachmentDownload(UUID attachmentId) {
+        FileAttachment attachment = findReadableAttachment(attachmentId);
+
+        String etag = attachment.getChecksum() != null ? attachment.getChecksum()
+                : attachment.getBlob() != null ? attachment.getBlob().getDigest() : attachment.getId().toString();
+        MediaType mediaType = attachment.getContentType() != null
+                ? MediaType.parseMediaType(attachment.getContentType())
+                : MediaTypeFactory.getMediaType(attachment.getFileName()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        long lastModified = attachment.getCreatedAt() != null
+                ? attachment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+        String downloadName = attachment.getOriginalFileName() != null
+                ? attachment.getOriginalFileName() : downloadName(attachment.getFileName());
+        return new AttachmentDownload(attachment.getFileName(), downloadName, etag,
+                lastModified, mediaType, attachment.getSize());
+    }
+
+    /**
+     * Igual que getAttachmentDownload, pero para la miniatura JPEG del adjunto. La miniatura de un adjunto
+     * tampoco cambia una vez generada, así que el ETag se deriva del id del adjunto.
+     */
+    @Transactional(readOnly = true)
+    public AttachmentDownload getThumbnailDownload(UUID attachmentId) {
+        FileAttachment attachment = findReadableAttachment(attachmentId);
+        if (attachment.getThumbnailFileName() == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Thumbnail not found");
+        }
+        return new AttachmentDownload(attachment.getThumbnailFileName(), downloadName(attachment.getThumbnailFileName()),
+                attachment.getId() + "-thumb", -1, MediaType.IMAGE_JPEG, null);
+    }
+
+    private FileAttachment findReadableAttachment(UUID attachmentId) {
+        FileAttachment attachment = fileAttachmentRepository.findWithCommentAndBlobById(attachmentId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Attachment not found"));
+
+        if (!issueExternalService.validateIssueReadAccess(attachment.getComment().getIssueId(), JwtContextHolder.getToken())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You do not have permission to access the content of this issue");
+        }
+        return attachment;
+    }
+
+    public Resource loadAttachment(AttachmentDownload download) {
+        try {
+            return fileStorage.load(download.storedFileName())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "File not found"));
+        } catch (IOException e) {
+            logger.error("Error al leer el archivo {}", download.storedFileName(), e);
+            throw new FileStorageException("Error reading file: " + download.storedFileName(), e);
+        }
+    }
+
+    // Adjuntos sin nombre original guardado: los archivos sin deduplicar se guardan como "<uuid>_<nombre original>"
+    private static String downloadName(String fileName) {
+        int separator = fileName.indexOf('_');
+        return separator == 36 ? fileName.substring(separator + 1) : fileName;
+    }
+
+    public List<FileAttachmentRepository.StoredFile> findStoredFiles(Collection<UUID> commentIds) {
+        return fileAttachmentRepository.findStoredFilesByCommentIds(commentIds);
+    }
+
+    /**
+     * Libera los archivos de adjuntos ya eliminados. Los archivos sin deduplicar se encolan para borrarse;
+     * los blobs solo se encolan cuando se elimina su última referencia.
+     *
+     * @return número de archivos encolados para borrarse
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int releaseFiles(List<FileAttachmentRepository.StoredFile> storedFiles) {
+        List<String> fileNames = new ArrayList<>();
+        // Orden fijo para que dos liberaciones concurrentes bloqueen los blobs en el mismo orden
+        Map<String, Integer> references = new TreeMap<>();
+        for (FileAttachmentRepository.StoredFile storedFile : storedFiles) {
+            if (storedFile.getThumbnailFileName() != null) {
+                fileNames.add(storedFile.getThumbnailFileName());
+            }
+            if (storedFile.getBlobDigest() == null) {
+                fileNames.add(storedFile.getFileName());
+            } else {
+                references.merge(storedFile.getBlobDigest(), 1, Integer::sum);
+            }
+        }
+
+        if (!references.isEmpty()) {
+            references.forEach(fileBlobRepository::removeReferences);
+            fileNames.addAll(fileBlobRepository.findUnreferencedFileNames(references.keySet()));
+        }
+        fileDeletionOutboxService.enqueue(fileNames);
+        return fileNames.size();
+    }
+
+    // Se deduce del nombre, igual que al servir el archivo; el tipo declarado por el cliente no es fiable
+    static String contentTypeOf(String originalFilename) {
+        return MediaTypeFactory.getMediaType(originalFilename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        var matcher = EXTENSION.matcher(originalFilename);
+        return matcher.find() ? matcher.group().toLowerCase() : "";
+    }
+
+    static void deleteTempFile(Path tempFile) {
+        if (tempFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.warn("No se pudo eliminar el archivo temporal {}: {}", tempFile, e.getMessage());
+        }
+    }
+
+    record StagedFile(String originalName, Path tempFile, long size, String digest) {}
+
+    public record AttachmentDownload(String storedFileName, String fileName, String etag, long lastModified,
+                                     MediaType mediaType, Long size) {}
 }
@@ -0,0 +1,184 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.entity.FileBlob;
+import com.cartagenacorp.lm_comments.entity.FileDeletionOutbox;
+import com.cartagenacorp.lm_comments.repository.FileBlobRepository;
+import com.cartagenacorp.lm_comments.repository.FileDeletionOutboxRepository;
+import com.cartagenacorp.lm_comments.storage.FileStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola transaccional (outbox) de archivos a eliminar. Los borrados se registran en la misma
+ * transacción que elimina las filas y un proceso en segundo plano elimina los archivos del disco.
+ */
+@Service
+public class FileDeletionOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDeletionOutboxService.class);
+
+    private final FileDeletionOutboxRepository outboxRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final FileStorage fileStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService fileDeletionExecutor;
+    private final Counter deletedFiles;
+    private final Counter failedAttempts;
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong queueLagSeconds = new AtomicLong();
+
+    @Value("${app.file-deletion.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.file-deletion.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.file-deletion.initial-backoff:10s}")
+    private Duration initialBackoff;
+
+    @Value("${app.file-deletion.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    public FileDeletionOutboxService(FileDeletionOutboxRepository outboxRepository,
+                                     FileBlobRepository fileBlobRepository, FileStorage fileStorage,
+                                     PlatformTransactionManager transactionManager,
+                                     @Qualifier("fileDeletionExecutor") ExecutorService fileDeletionExecutor,
+                                     MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.fileBlobRepository = fileBlobRepository;
+        this.fileStorage = fileStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fileDeletionExecutor = fileDeletionExecutor;
+        this.deletedFiles = Counter.builder("file.deletion.outbox.processed")
+                .tag("result", "deleted")
+                .register(meterRegistry);
+        this.failedAttempts = Counter.builder("file.deletion.outbox.processed")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        Gauge.builder("file.deletion.outbox.depth", queueDepth, AtomicLong::get)
+                .description("Archivos pendientes de eliminar")
+                .register(meterRegistry);
+        Gauge.builder("file.deletion.outbox.lag.seconds", queueLagSeconds, AtomicLong::get)
+                .description("Antigüedad del borrado pendiente más antiguo")
+                .register(meterRegistry);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Collection<String> fileNames) {
+        if (fileNames.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.saveAll(fileNames.stream()
+                .map(fileName -> new FileDeletionOutbox(null, fileName, now, now, 0, null))
+                .toList());
+    }
+
+    @Scheduled(fixedDelayString = "${app.file-deletion.poll-interval:5s}")
+    public void processPending() {
+        Integer processed;
+        do {
+            processed = transactionTemplate.execute(status -> processBatch());
+        } while (processed != null && processed == batchSize);
+
+        queueDepth.set(outboxRepository.countByAttemptsLessThan(maxAttempts));
+        LocalDateTime oldest = outboxRepository.findOldestPendingCreatedAt(maxAttempts);
+        queueLagSeconds.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toSeconds());
+    }
+
+    private int processBatch() {
+        List<FileDeletionOutbox> batch = outboxRepository.findReadyForProcessing(
+                LocalDateTime.now(), maxAttempts, PageRequest.of(0, batchSize));
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Blobs deduplicados: solo se borran si siguen sin referencias. El bloqueo hace esperar a una
+        // subida concurrente del mismo contenido hasta que el archivo y la fila se hayan eliminado.
+        List<String> fileNames = batch.stream().map(FileDeletionOutbox::getFileName).toList();
+        Map<String, FileBlob> unreferencedBlobs = new HashMap<>();
+        fileBlobRepository.lockUnreferencedByFileNames(fileNames)
+                .forEach(blob -> unreferencedBlobs.put(blob.getFileName(), blob));
+        Set<String> referencedBlobs = fileBlobRepository.findReferencedFileNames(fileNames);
+
+        List<FileDeletionOutbox> completed = new ArrayList<>();
+        Map<FileDeletionOutbox, Future<Boolean>> deletions = new LinkedHashMap<>();
+        for (FileDeletionOutbox entry : batch) {
+            if (referencedBlobs.contains(entry.getFileName())) {
+                completed.add(entry);
+            } else {
+                deletions.put(entry, fileDeletionExecutor.submit(() -> deleteFile(entry.getFileName())));
+            }
+        }
+
+        List<FileBlob> deletedBlobs = new ArrayList<>();
+        for (Map.Entry<FileDeletionOutbox, Future<Boolean>> deletion : deletions.entrySet()) {
+            FileDeletionOutbox entry = deletion.getKey();
+            try {
+                deletion.getValue().get();
+                completed.add(entry);
+                deletedFiles.increment();
+                FileBlob blob = unreferencedBlobs.get(entry.getFileName());
+                if (blob != null) {
+                    deletedBlobs.add(blob);
+                }
+            } catch (ExecutionException e) {
+                scheduleRetry(entry, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scheduleRetry(entry, e);
+            }
+        }
+
+        outboxRepository.deleteAllInBatch(completed);
+        fileBlobRepository.deleteAllInBatch(deletedBlobs);
+        return batch.size();
+    }
+
+    private boolean deleteFile(String fileName) throws IOException {
+        return fileStorage.delete(fileName);
+    }
+
+    private void scheduleRetry(FileDeletionOutbox entry, Throwable cause) {
+        failedAttempts.increment();
+        int attempts = entry.getAttempts() + 1;
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        entry.setAttempts(attempts);
+        entry.setNextAttemptAt(LocalDateTime.now().plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff));
+        entry.setLastError(cause.toString());
+
+        if (attempts >= maxAttempts) {
+            logger.error("No se pudo eliminar el archivo {} tras {} intentos", entry.getFileName(), attempts, cause);
+        } else {
+            logger.warn("No se pudo eliminar el archivo {} (intento {}): {}", entry.getFileName(), attempts, cause.getMessage());
+        }
+    }
+}
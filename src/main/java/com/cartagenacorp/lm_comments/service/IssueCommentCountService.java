@@ -0,0 +1,97 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.IssueCommentCountDto;
+import com.cartagenacorp.lm_comments.repository.CommentRepository;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Número de comentarios y respuestas por issue para tableros y listados. Las issues que faltan en la caché
+ * se resuelven juntas con una sola consulta agregada. Las issues que el usuario no puede leer se omiten de la
+ * respuesta; el acceso se comprueba en cada llamada, también cuando el contador ya está en caché. Si lm-issues
+ * no permite comprobar alguna, se responde 503 en lugar de omitirla.
+ */
+@Service
+public class IssueCommentCountService {
+
+    private final CommentRepository commentRepository;
+    private final IssueExternalService issueExternalService;
+    private final Cache<IssueCountKey, IssueCommentCountDto> issueCommentCountCache;
+
+    public IssueCommentCountService(CommentRepository commentRepository, IssueExternalService issueExternalService,
+                                    @Qualifier("issueCommentCountCache") Cache<IssueCountKey, IssueCommentCountDto> issueCommentCountCache) {
+        this.commentRepository = commentRepository;
+        this.issueExternalService = issueExternalService;
+        this.issueCommentCountCache = issueCommentCountCache;
+    }
+
+    public List<IssueCommentCountDto> getCounts(Collection<UUID> issueIds) {
+        UUID organizationId = JwtContextHolder.getOrganizationId();
+        IssueExternalService.IssuesReadAccess access = issueExternalService.checkIssuesReadAccess(issueIds, JwtContextHolder.getToken());
+        // Sin respuesta de lm-issues no se sabe si la issue es visible: omitirla parecería un acceso denegado
+        if (!access.unavailable().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Could not verify access to "
+                    + access.unavailable().size() + " issues, try again later");
+        }
+        Set<UUID> readable = access.readable();
+        List<IssueCountKey> keys = issueIds.stream()
+                .distinct()
+                .filter(readable::contains)
+                .map(issueId -> new IssueCountKey(organizationId, issueId))
+                .toList();
+        Map<IssueCountKey, IssueCommentCountDto> counts = issueCommentCountCache.getAll(keys,
+                missing -> loadCounts(organizationId, missing));
+        return keys.stream().map(counts::get).toList();
+    }
+
+    private Map<IssueCountKey, IssueCommentCountDto> loadCounts(UUID organizationId, Set<? extends IssueCountKey> keys) {
+        Set<UUID> issueIds = keys.stream().map(IssueCountKey::issueId).collect(Collectors.toSet());
+        Map<UUID, IssueCommentCountDto> found = commentRepository.countByIssueIds(organizationId, issueIds).stream()
+                .collect(Collectors.toMap(IssueCommentCountDto::issueId, count -> count));
+
+        // Las issues sin comentarios también se guardan, con cero, para no volver a consultarlas
+        Map<IssueCountKey, IssueCommentCountDto> counts = new HashMap<>();
+        for (IssueCountKey key : keys) {
+            counts.put(key, found.getOrDefault(key.issueId(), new IssueCommentCountDto(key.issueId(), 0, 0)));
+        }
+        return counts;
+    }
+
+    /**
+     * Invalida el contador al confirmar la transacción; antes, otra petición podría volver a cachear el valor
+     * anterior a los cambios.
+     */
+    public void invalidate(UUID organizationId, UUID issueId) {
+        IssueCountKey key = new IssueCountKey(organizationId, issueId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            issueCommentCountCache.invalidate(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                issueCommentCountCache.invalidate(key);
+            }
+        });
+    }
+
+    public void invalidateIssue(UUID issueId) {
+        issueCommentCountCache.asMap().keySet().removeIf(key -> key.issueId().equals(issueId));
+    }
+
+    public record IssueCountKey(UUID organizationId, UUID issueId) {}
+}
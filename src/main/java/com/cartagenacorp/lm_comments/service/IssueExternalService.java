@@ -1,8 +1,17 @@
 package com.cartagenacorp.lm_comments.service;
 
 import com.cartagenacorp.lm_comments.dto.IssueDtoResponse;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.cartagenacorp.lm_comments.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -10,10 +19,22 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class IssueExternalService {
@@ -23,10 +44,34 @@ public class IssueExternalService {
     @Value("${issues.service.url}")
     private String issueServiceUrl;
 
+    @Value("${issues.service.resilience.serve-stale-access:true}")
+    private boolean serveStaleAccess;
+
     private final RestTemplate restTemplate;
+    private final Cache<IssueAccessKey, Boolean> issueAccessCache;
+    private final Cache<IssueAccessKey, Boolean> issueAccessStaleCache;
+    private final SingleFlight<IssueAccessKey, AccessDecision> issueAccessFlight;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final ExecutorService externalCallExecutor;
+    private final Duration externalCallsDeadline;
 
-    public IssueExternalService(RestTemplate restTemplate) {
+    public IssueExternalService(@Qualifier("issuesRestTemplate") RestTemplate restTemplate,
+                                @Qualifier("issueAccessCache") Cache<IssueAccessKey, Boolean> issueAccessCache,
+                                @Qualifier("issueAccessStaleCache") Cache<IssueAccessKey, Boolean> issueAccessStaleCache,
+                                @Qualifier("issuesCircuitBreaker") CircuitBreaker circuitBreaker,
+                                @Qualifier("issuesBulkhead") Bulkhead bulkhead,
+                                @Qualifier("externalCallExecutor") ExecutorService externalCallExecutor,
+                                @Value("${app.external-calls.deadline:5s}") Duration externalCallsDeadline,
+                                MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
+        this.issueAccessCache = issueAccessCache;
+        this.issueAccessStaleCache = issueAccessStaleCache;
+        this.issueAccessFlight = new SingleFlight<>("issueAccess", externalCallsDeadline, meterRegistry);
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.externalCallExecutor = externalCallExecutor;
+        this.externalCallsDeadline = externalCallsDeadline;
     }
 
     public boolean validateIssueExists(UUID issueId, String token) {
@@ -42,12 +87,12 @@ public class IssueExternalService {
             headers.setBearerAuth(token);
             HttpEntity<String> entity = new HttpEntity<>(headers);
 
-            ResponseEntity<Boolean> response = restTemplate.exchange(
+            ResponseEntity<Boolean> response = call(() -> restTemplate.exchange(
                     url,
                     HttpMethod.GET,
                     entity,
                     Boolean.class
-            );
+            ));
 
             logger.info("Resultado de la validación de existencia del issue con ID {}: {}", issueId, response);
             return Boolean.TRUE.equals(response.getBody());
@@ -55,6 +100,8 @@ public class IssueExternalService {
             logger.warn("Token no autorizado para validar la existencia del issue: {}", ex.getMessage());
         } catch (HttpClientErrorException.Forbidden ex) {
             logger.warn("No tiene permisos para  validar la existencia del issue: {}", ex.getMessage());
+        } catch (CallNotPermittedException | BulkheadFullException ex) {
+            logger.warn("Llamada a lm-issues rechazada: {}", ex.getMessage());
         } catch (ResourceAccessException ex) {
             logger.warn("El servicio externo no esta disponible: {}",ex.getMessage());
         }  catch (Exception ex) {
@@ -64,6 +111,123 @@ public class IssueExternalService {
     }
 
     public boolean validateIssueAccess(UUID issueId, String token) {
+        return validateIssueAccess(issueId, token, false);
+    }
+
+    /**
+     * Igual que validateIssueAccess, pero si lm-issues no está disponible puede
+     * responder con la última decisión conocida. Solo para operaciones de lectura.
+     */
+    public boolean validateIssueReadAccess(UUID issueId, String token) {
+        return validateIssueAccess(issueId, token, serveStaleAccess);
+    }
+
+    private boolean validateIssueAccess(UUID issueId, String token, boolean allowStale) {
+        return resolveIssueAccess(issueId, token, allowStale) == AccessDecision.GRANTED;
+    }
+
+    /**
+     * GRANTED o DENIED si hay una decisión (en caché, de lm-issues o la última conocida);
+     * UNAVAILABLE si lm-issues no respondió y no hay decisión anterior que usar.
+     */
+    private AccessDecision resolveIssueAccess(UUID issueId, String token, boolean allowStale) {
+        IssueAccessKey key = new IssueAccessKey(JwtContextHolder.getUserId(), JwtContextHolder.getOrganizationId(), issueId);
+        Boolean cached = issueAccessCache.getIfPresent(key);
+        if (cached != null) {
+            return cached ? AccessDecision.GRANTED : AccessDecision.DENIED;
+        }
+
+        AccessDecision decision;
+        try {
+            decision = issueAccessFlight.execute(key, () -> requestIssueAccess(issueId, token));
+        } catch (SingleFlight.WaitTimeoutException ex) {
+            logger.warn("La validación de acceso a la issue {} en curso no terminó a tiempo: {}", issueId, ex.getMessage());
+            decision = AccessDecision.UNAVAILABLE;
+        }
+        switch (decision) {
+            case GRANTED, DENIED -> {
+                boolean allowed = decision == AccessDecision.GRANTED;
+                issueAccessCache.put(key, allowed);
+                issueAccessStaleCache.put(key, allowed);
+                return decision;
+            }
+            case UNAVAILABLE -> {
+                Boolean lastKnown = allowStale ? issueAccessStaleCache.getIfPresent(key) : null;
+                if (lastKnown != null) {
+                    logger.warn("lm-issues no disponible, usando la última decisión de acceso conocida para la issue {}", issueId);
+                    return lastKnown ? AccessDecision.GRANTED : AccessDecision.DENIED;
+                }
+                return AccessDecision.UNAVAILABLE;
+            }
+            default -> {
+                return decision;
+            }
+        }
+    }
+
+    /**
+     * Acceso de lectura a varias issues de una vez. lm-issues no tiene un endpoint por lotes: cada issue
+     * distinta se consulta una sola vez y las decisiones en caché no generan llamadas. El resto se piden en
+     * paralelo, sin superar el tamaño del bulkhead para que no rechace las propias llamadas del lote, y con
+     * el mismo límite de tiempo que las demás llamadas externas. Las issues que no se pudieron comprobar se
+     * devuelven aparte: no equivalen a un acceso denegado.
+     */
+    public IssuesReadAccess checkIssuesReadAccess(Collection<UUID> issueIds, String token) {
+        Set<UUID> readable = ConcurrentHashMap.newKeySet();
+        Set<UUID> denied = ConcurrentHashMap.newKeySet();
+        List<UUID> pending = issueIds.stream()
+                .distinct()
+                .filter(issueId -> {
+                    Boolean cached = issueAccessCache.getIfPresent(
+                            new IssueAccessKey(JwtContextHolder.getUserId(), JwtContextHolder.getOrganizationId(), issueId));
+                    if (cached != null) {
+                        (cached ? readable : denied).add(issueId);
+                    }
+                    return cached == null;
+                })
+                .toList();
+        if (pending.isEmpty()) {
+            return new IssuesReadAccess(Set.copyOf(readable), Set.of());
+        }
+
+        Semaphore permits = new Semaphore(bulkhead.getBulkheadConfig().getMaxConcurrentCalls());
+        List<Callable<Void>> checks = pending.stream()
+                .map(issueId -> JwtContextHolder.propagate(() -> {
+                    permits.acquire();
+                    try {
+                        switch (resolveIssueAccess(issueId, token, serveStaleAccess)) {
+                            case GRANTED -> readable.add(issueId);
+                            case UNAVAILABLE -> { }
+                            default -> denied.add(issueId);
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                    return (Void) null;
+                }))
+                .toList();
+        try {
+            // invokeAll cancela las comprobaciones que no terminan a tiempo; esas issues quedan sin decisión
+            externalCallExecutor.invokeAll(checks, externalCallsDeadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Set<UUID> unavailable = pending.stream()
+                .filter(issueId -> !readable.contains(issueId) && !denied.contains(issueId))
+                .collect(Collectors.toSet());
+        if (!unavailable.isEmpty()) {
+            logger.warn("No se pudo validar el acceso a {} de {} issues", unavailable.size(), pending.size());
+        }
+        return new IssuesReadAccess(Set.copyOf(readable), unavailable);
+    }
+
+    public void invalidateIssueAccess(UUID issueId) {
+        issueAccessCache.asMap().keySet().removeIf(key -> key.issueId().equals(issueId));
+        issueAccessStaleCache.asMap().keySet().removeIf(key -> key.issueId().equals(issueId));
+    }
+
+    private AccessDecision requestIssueAccess(UUID issueId, String token) {
         String url = issueServiceUrl + "/" + issueId;
 
         try {
@@ -71,17 +235,40 @@ public class IssueExternalService {
             headers.setBearerAuth(token);
             HttpEntity<Void> request = new HttpEntity<>(headers);
 
-            restTemplate.exchange(url, HttpMethod.GET, request, IssueDtoResponse.class);
-            return true;
+            call(() -> restTemplate.exchange(url, HttpMethod.GET, request, IssueDtoResponse.class));
+            return AccessDecision.GRANTED;
         } catch (HttpClientErrorException.Unauthorized ex) {
             logger.warn("Token no autorizado para validar el acceso a la issue: {}", ex.getMessage());
         } catch (HttpClientErrorException.Forbidden ex) {
             logger.warn("No tiene permisos para  validar el acceso a la issue: {}", ex.getMessage());
-        } catch (ResourceAccessException ex) {
+            return AccessDecision.DENIED;
+        } catch (HttpClientErrorException.NotFound ex) {
+            logger.warn("La issue {} no existe: {}", issueId, ex.getMessage());
+            return AccessDecision.DENIED;
+        } catch (CallNotPermittedException | BulkheadFullException ex) {
+            logger.warn("Llamada a lm-issues rechazada: {}", ex.getMessage());
+            return AccessDecision.UNAVAILABLE;
+        } catch (ResourceAccessException | HttpServerErrorException ex) {
             logger.warn("El servicio externo no esta disponible: {}",ex.getMessage());
+            return AccessDecision.UNAVAILABLE;
         }  catch (Exception ex) {
             logger.error("Error al validar el acceso a la issue: {}", ex.getMessage(), ex);
         }
-        return false;
+        return AccessDecision.UNKNOWN;
+    }
+
+    private <T> T call(Supplier<T> supplier) {
+        return circuitBreaker.executeSupplier(() -> bulkhead.executeSupplier(supplier));
+    }
+
+    public record IssueAccessKey(UUID userId, UUID organizationId, UUID issueId) {}
+
+    public record IssuesReadAccess(Set<UUID> readable, Set<UUID> unavailable) {}
+
+    private enum AccessDecision {
+        GRANTED,
+        DENIED,
+        UNAVAILABLE,
+        UNKNOWN
     }
 }
@@ -0,0 +1,137 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.IssuePurgeJobDto;
+import com.cartagenacorp.lm_comments.repository.CommentRepository;
+import com.cartagenacorp.lm_comments.repository.CommentResponsesRepository;
+import com.cartagenacorp.lm_comments.repository.FileAttachmentRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Borra todos los comentarios de una issue por lotes, con sentencias DELETE masivas.
+ * Cada lote se confirma en su propia transacción y sus archivos se encolan para borrarse en segundo plano.
+ */
+@Service
+public class IssuePurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IssuePurgeService.class);
+
+    private final CommentRepository commentRepository;
+    private final CommentResponsesRepository commentResponsesRepository;
+    private final FileAttachmentRepository fileAttachmentRepository;
+    private final FileAttachmentService fileAttachmentService;
+    private final IssueExternalService issueExternalService;
+    private final IssueCommentCountService issueCommentCountService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService issuePurgeExecutor;
+    private final Cache<UUID, IssuePurgeJobDto> jobs = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(1))
+            .maximumSize(1000)
+            .build();
+
+    @Value("${app.issue-purge.batch-size:500}")
+    private int batchSize;
+
+    public IssuePurgeService(CommentRepository commentRepository, CommentResponsesRepository commentResponsesRepository,
+                             FileAttachmentRepository fileAttachmentRepository,
+                             FileAttachmentService fileAttachmentService,
+                             IssueExternalService issueExternalService, IssueCommentCountService issueCommentCountService,
+                             PlatformTransactionManager transactionManager,
+                             @Qualifier("issuePurgeExecutor") ExecutorService issuePurgeExecutor) {
+        this.commentRepository = commentRepository;
+        this.commentResponsesRepository = commentResponsesRepository;
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.fileAttachmentService = fileAttachmentService;
+        this.issueExternalService = issueExternalService;
+        this.issueCommentCountService = issueCommentCountService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.issuePurgeExecutor = issuePurgeExecutor;
+    }
+
+    public IssuePurgeJobDto purge(UUID issueId) {
+        IssuePurgeJobDto job = newJob(issueId);
+        run(job);
+        return job;
+    }
+
+    public IssuePurgeJobDto purgeAsync(UUID issueId) {
+        IssuePurgeJobDto job = newJob(issueId);
+        issuePurgeExecutor.execute(() -> run(job));
+        return job;
+    }
+
+    public Optional<IssuePurgeJobDto> getJob(UUID jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    private IssuePurgeJobDto newJob(UUID issueId) {
+        IssuePurgeJobDto job = new IssuePurgeJobDto();
+        job.setId(UUID.randomUUID());
+        job.setIssueId(issueId);
+        job.setStatus("PENDING");
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    private void run(IssuePurgeJobDto job) {
+        UUID issueId = job.getIssueId();
+        job.setStartedAt(LocalDateTime.now());
+        job.setStatus("RUNNING");
+        try {
+            job.setTotalComments(commentRepository.countByIssueId(issueId));
+            publish(job);
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteBatch(job)))) {
+                publish(job);
+            }
+            job.setStatus("COMPLETED");
+            logger.info("Comentarios de la issue {} eliminados: {} comentarios, {} archivos",
+                    issueId, job.getDeletedComments(), job.getQueuedFileDeletions());
+        } catch (RuntimeException ex) {
+            job.setStatus("FAILED");
+            job.setError(ex.getMessage());
+            logger.error("Error eliminando los comentarios de la issue {}", issueId, ex);
+            throw ex;
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+            publish(job);
+            issueExternalService.invalidateIssueAccess(issueId);
+            issueCommentCountService.invalidateIssue(issueId);
+        }
+    }
+
+    // Volver a publicar el job en la caché hace visible su progreso a los hilos que lo consultan.
+    private void publish(IssuePurgeJobDto job) {
+        jobs.put(job.getId(), job);
+    }
+
+    private boolean deleteBatch(IssuePurgeJobDto job) {
+        List<UUID> commentIds = commentRepository.findIdsByIssueId(job.getIssueId(), PageRequest.of(0, batchSize));
+        if (commentIds.isEmpty()) {
+            return false;
+        }
+
+        List<FileAttachmentRepository.StoredFile> storedFiles = fileAttachmentService.findStoredFiles(commentIds);
+        commentResponsesRepository.deleteByCommentIds(commentIds);
+        fileAttachmentRepository.deleteByCommentIds(commentIds);
+        int queuedFiles = fileAttachmentService.releaseFiles(storedFiles);
+        commentRepository.deleteAllByIdInBatch(commentIds);
+        job.setDeletedComments(job.getDeletedComments() + commentIds.size());
+        job.setQueuedFileDeletions(job.getQueuedFileDeletions() + queuedFiles);
+        return true;
+    }
+}
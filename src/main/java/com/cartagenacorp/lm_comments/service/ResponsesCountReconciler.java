@@ -0,0 +1,68 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Corrige las diferencias entre comment.responses_count y el número real de respuestas. Recorre los
+ * comentarios por id en lotes, cada uno en su propia transacción, para no bloquear la tabla entera.
+ * Al arrancar solo se ejecuta si se activa, por ejemplo para rellenar la columna la primera vez.
+ */
+@Service
+public class ResponsesCountReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponsesCountReconciler.class);
+
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.responses-count.reconcile-on-startup:false}")
+    private boolean reconcileOnStartup;
+
+    @Value("${app.responses-count.reconcile-batch-size:1000}")
+    private int batchSize;
+
+    public ResponsesCountReconciler(CommentRepository commentRepository, PlatformTransactionManager transactionManager) {
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (reconcileOnStartup) {
+            reconcile();
+        }
+    }
+
+    @Scheduled(cron = "${app.responses-count.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        int repaired = 0;
+        List<UUID> ids = commentRepository.findFirstIdBatch(PageRequest.of(0, batchSize));
+        while (!ids.isEmpty()) {
+            List<UUID> batch = ids;
+            repaired += transactionTemplate.execute(tx -> commentRepository.reconcileResponsesCounts(batch));
+            if (ids.size() < batchSize) {
+                break;
+            }
+            ids = commentRepository.findIdBatchAfter(ids.get(ids.size() - 1), PageRequest.of(0, batchSize));
+        }
+
+        if (repaired > 0) {
+            logger.warn("Se corrigió el contador de respuestas de {} comentarios", repaired);
+        } else {
+            logger.debug("Contadores de respuestas sin diferencias");
+        }
+    }
+}
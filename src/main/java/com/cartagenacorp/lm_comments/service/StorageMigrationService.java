@@ -0,0 +1,103 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.storage.FileStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Mueve al almacenamiento configurado los archivos que siguen en el directorio plano de file.upload-dir.
+ * Se ejecuta en segundo plano con el servicio en marcha: mientras tanto las lecturas buscan primero en la
+ * nueva ubicación y después en el directorio plano, así que ningún archivo deja de estar disponible.
+ */
+@Service
+public class StorageMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageMigrationService.class);
+
+    private final FileStorage fileStorage;
+    private final Counter migratedFiles;
+    private final Counter failedFiles;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.storage-migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.storage-migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.storage-migration.pause-between-batches:1s}")
+    private Duration pauseBetweenBatches;
+
+    public StorageMigrationService(FileStorage fileStorage, MeterRegistry meterRegistry) {
+        this.fileStorage = fileStorage;
+        this.migratedFiles = Counter.builder("storage.migration.files")
+                .tag("result", "migrated")
+                .register(meterRegistry);
+        this.failedFiles = Counter.builder("storage.migration.files")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (enabled) {
+            Thread.ofPlatform().name("storage-migration").daemon(true).start(this::migrate);
+        }
+    }
+
+    public void migrate() {
+        Path directory = Paths.get(uploadDir);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        logger.info("Iniciando la migración de archivos desde {}", directory.toAbsolutePath());
+        long migrated = 0;
+        long failed = 0;
+        int inBatch = 0;
+
+        // DirectoryStream recorre el directorio sin cargar millones de entradas en memoria
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                path -> Files.isRegularFile(path) && !path.getFileName().toString().startsWith("."))) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                try {
+                    fileStorage.store(fileName, file);
+                    migratedFiles.increment();
+                    migrated++;
+                } catch (IOException | IllegalArgumentException e) {
+                    failedFiles.increment();
+                    failed++;
+                    logger.warn("No se pudo migrar el archivo {}: {}", fileName, e.getMessage());
+                }
+
+                if (++inBatch == batchSize) {
+                    inBatch = 0;
+                    logger.info("Migración de archivos en curso: {} migrados, {} con error", migrated, failed);
+                    Thread.sleep(pauseBetweenBatches);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error recorriendo el directorio {}", directory, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Migración de archivos interrumpida");
+        }
+        logger.info("Migración de archivos finalizada: {} migrados, {} con error", migrated, failed);
+    }
+}
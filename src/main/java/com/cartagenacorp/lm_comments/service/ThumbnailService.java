@@ -0,0 +1,218 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.entity.FileAttachment;
+import com.cartagenacorp.lm_comments.repository.FileAttachmentRepository;
+import com.cartagenacorp.lm_comments.storage.FileStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Genera en segundo plano una miniatura JPEG y un placeholder de baja calidad para los adjuntos de imagen.
+ * Se ejecuta después del commit del comentario; un error aquí solo deja el adjunto sin miniatura.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final FileAttachmentRepository fileAttachmentRepository;
+    private final FileStorage fileStorage;
+    private final ExecutorService thumbnailExecutor;
+    private final Counter generated;
+    private final Counter skipped;
+    private final Counter failed;
+    private final Counter rejected;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.thumbnails.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.thumbnails.max-size:320}")
+    private int maxSize;
+
+    @Value("${app.thumbnails.placeholder-size:16}")
+    private int placeholderSize;
+
+    @Value("${app.thumbnails.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    public ThumbnailService(FileAttachmentRepository fileAttachmentRepository, FileStorage fileStorage,
+                            @Qualifier("thumbnailExecutor") ExecutorService thumbnailExecutor,
+                            MeterRegistry meterRegistry) {
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.fileStorage = fileStorage;
+        this.thumbnailExecutor = thumbnailExecutor;
+        this.generated = counter(meterRegistry, "generated");
+        this.skipped = counter(meterRegistry, "skipped");
+        this.failed = counter(meterRegistry, "failed");
+        this.rejected = counter(meterRegistry, "rejected");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("thumbnails.processed")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onAttachmentsSaved(AttachmentsSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (UUID attachmentId : event.attachmentIds()) {
+            try {
+                thumbnailExecutor.execute(() -> generate(attachmentId));
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                logger.warn("Cola de miniaturas llena, se omite el adjunto {}", attachmentId);
+            }
+        }
+    }
+
+    void generate(UUID attachmentId) {
+        try {
+            FileAttachment attachment = fileAttachmentRepository.findById(attachmentId).orElse(null);
+            if (attachment == null || !isImage(attachment.getFileName())) {
+                skipped.increment();
+                return;
+            }
+            Resource resource = fileStorage.load(attachment.getFileName()).orElse(null);
+            BufferedImage source = resource == null ? null : readImage(resource);
+            if (source == null) {
+                skipped.increment();
+                return;
+            }
+
+            String thumbnailFileName = attachmentId + "_thumb.jpg";
+            Path tempFile = Files.createTempFile(Files.createDirectories(Paths.get(uploadDir).resolve(".tmp")), "thumb-", ".part");
+            try {
+                Files.write(tempFile, encodeJpeg(resize(source, maxSize), 0.8f));
+                fileStorage.store(thumbnailFileName, tempFile);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            String placeholder = placeholderSize > 0
+                    ? "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(encodeJpeg(resize(source, placeholderSize), 0.5f))
+                    : null;
+
+            int updated = fileAttachmentRepository.updateThumbnail(attachmentId, thumbnailFileName, placeholder);
+            if (updated == 0) {
+                // El adjunto se eliminó mientras se generaba la miniatura
+                fileStorage.delete(thumbnailFileName);
+                skipped.increment();
+                return;
+            }
+            generated.increment();
+            logger.debug("Miniatura generada para el adjunto {}", attachmentId);
+        } catch (Exception e) {
+            failed.increment();
+            logger.warn("No se pudo generar la miniatura del adjunto {}: {}", attachmentId, e.getMessage());
+        }
+    }
+
+    private static boolean isImage(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName)
+                .map(type -> "image".equals(type.getType()) && !type.getSubtype().contains("svg"))
+                .orElse(false);
+    }
+
+    /**
+     * Lee la imagen comprobando antes sus dimensiones, para no descomprimir imágenes gigantes,
+     * y submuestrea al leer las que son mucho mayores que la miniatura.
+     */
+    private BufferedImage readImage(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream();
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = imageInput == null ? null : ImageIO.getImageReaders(imageInput);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    logger.info("Imagen de {}x{} demasiado grande para generar miniatura", width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (maxSize * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int targetSize) {
+        double scale = Math.min(1.0, (double) targetSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // JPEG no admite transparencia: se pinta sobre fondo blanco
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByMIMEType(MediaType.IMAGE_JPEG_VALUE).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
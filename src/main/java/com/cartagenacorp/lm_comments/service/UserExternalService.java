@@ -1,8 +1,17 @@
 package com.cartagenacorp.lm_comments.service;
 
 import com.cartagenacorp.lm_comments.dto.UserBasicDataDto;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.cartagenacorp.lm_comments.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
@@ -11,8 +20,10 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Collections;
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserExternalService {
@@ -23,12 +34,72 @@ public class UserExternalService {
     private String authServiceUrl;
 
     private final RestTemplate restTemplate;
+    private final Cache<UserKey, Optional<UserBasicDataDto>> userCache;
+    private final SingleFlight<UsersRequestKey, List<UserBasicDataDto>> usersFlight;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
 
-    public UserExternalService(RestTemplate restTemplate) {
+    public UserExternalService(@Qualifier("authRestTemplate") RestTemplate restTemplate,
+                               Cache<UserKey, Optional<UserBasicDataDto>> userCache,
+                               @Qualifier("authCircuitBreaker") CircuitBreaker circuitBreaker,
+                               @Qualifier("authBulkhead") Bulkhead bulkhead,
+                               @Value("${app.external-calls.deadline:5s}") Duration externalCallsDeadline,
+                               MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
+        this.userCache = userCache;
+        this.usersFlight = new SingleFlight<>("users", externalCallsDeadline, meterRegistry);
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
     }
 
+    /**
+     * La caché y las llamadas compartidas se separan por organización: auth responde según el token,
+     * así que una petición de otra organización no puede reutilizar la respuesta obtenida con otro token.
+     */
     public List<UserBasicDataDto> getUsersData(String token, List<String> ids) {
+        UUID organizationId = JwtContextHolder.getOrganizationId();
+        List<String> distinctIds = ids.stream().distinct().toList();
+        Map<String, Optional<UserBasicDataDto>> resolved = new HashMap<>();
+        userCache.getAllPresent(distinctIds.stream().map(id -> new UserKey(organizationId, id)).toList())
+                .forEach((key, user) -> resolved.put(key.userId(), user));
+
+        List<String> missingIds = distinctIds.stream()
+                .filter(id -> !resolved.containsKey(id))
+                .toList();
+
+        if (!missingIds.isEmpty()) {
+            List<UserBasicDataDto> fetched;
+            try {
+                fetched = usersFlight.execute(new UsersRequestKey(organizationId, Set.copyOf(missingIds)),
+                        () -> requestUsersData(token, missingIds));
+            } catch (SingleFlight.WaitTimeoutException ex) {
+                // Igual que una consulta fallida: se omiten los usuarios y no se cachean como inexistentes
+                logger.warn("La consulta de usuarios en curso no terminó a tiempo: {}", ex.getMessage());
+                fetched = null;
+            }
+            if (fetched != null) {
+                Map<String, UserBasicDataDto> fetchedById = fetched.stream()
+                        .collect(Collectors.toMap(user -> user.getId().toString(), Function.identity(), (a, b) -> a));
+                for (String id : missingIds) {
+                    Optional<UserBasicDataDto> user = Optional.ofNullable(fetchedById.get(id));
+                    userCache.put(new UserKey(organizationId, id), user);
+                    resolved.put(id, user);
+                }
+            }
+        }
+
+        return distinctIds.stream()
+                .map(resolved::get)
+                .filter(Objects::nonNull)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    /**
+     * Devuelve los usuarios encontrados por el servicio de auth, o null si la
+     * consulta falló y los ids no deben cachearse como inexistentes.
+     */
+    private List<UserBasicDataDto> requestUsersData(String token, List<String> ids) {
         logger.debug("Obteniendo información de los usuarios con IDs: {}", ids);
         try {
             String url = authServiceUrl + "/users/batch";
@@ -38,12 +109,13 @@ public class UserExternalService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<List<String>> entity = new HttpEntity<>(ids, headers);
 
-            ResponseEntity<List<UserBasicDataDto>> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    entity,
-                    new ParameterizedTypeReference<List<UserBasicDataDto>>() {}
-            );
+            ResponseEntity<List<UserBasicDataDto>> response = circuitBreaker.executeSupplier(() ->
+                    bulkhead.executeSupplier(() -> restTemplate.exchange(
+                            url,
+                            HttpMethod.POST,
+                            entity,
+                            new ParameterizedTypeReference<List<UserBasicDataDto>>() {}
+                    )));
             logger.info("Resultado de la obtención de información de los usuarios con IDs {} : {}", ids, response);
 
             List<UserBasicDataDto> result = response.getBody();
@@ -52,11 +124,17 @@ public class UserExternalService {
             logger.warn("Token no autorizado para obtener la información de los usuarios con IDs {}: {}", ids, ex.getMessage());
         } catch (HttpClientErrorException.Forbidden ex) {
             logger.warn("No tiene permisos para  obtener la información de los usuarios con IDs {}: {}", ids, ex.getMessage());
+        } catch (CallNotPermittedException | BulkheadFullException ex) {
+            logger.warn("Llamada al servicio de auth rechazada, se omite la información de los usuarios: {}", ex.getMessage());
         } catch (ResourceAccessException ex) {
             logger.warn("El servicio externo no esta disponible: {}",ex.getMessage());
         }  catch (Exception ex) {
             logger.error("Error al obtener información de los usuarios con IDs {}: {}", ids, ex.getMessage(), ex);
         }
-        return Collections.emptyList();
+        return null;
     }
+
+    public record UserKey(UUID organizationId, String userId) {}
+
+    private record UsersRequestKey(UUID organizationId, Set<String> userIds) {}
 }
@@ -0,0 +1,34 @@
+package com.cartagenacorp.lm_comments.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de los archivos adjuntos. Los archivos se identifican por su nombre
+ * (el mismo que se guarda en file_attachment.file_name); cada implementación decide dónde los ubica.
+ * Los archivos subidos antes de la organización en carpetas se siguen leyendo desde el directorio plano
+ * de file.upload-dir hasta que se migran.
+ */
+public interface FileStorage {
+
+    /**
+     * Guarda el contenido de un archivo local y se queda con él: el archivo de origen deja de existir.
+     */
+    void store(String fileName, Path source) throws IOException;
+
+    boolean exists(String fileName) throws IOException;
+
+    Optional<Resource> load(String fileName) throws IOException;
+
+    boolean delete(String fileName) throws IOException;
+
+    static void validateFileName(String fileName) {
+        if (fileName == null || fileName.isBlank() || fileName.startsWith(".")
+                || fileName.contains("/") || fileName.contains("\\")) {
+            throw new IllegalArgumentException("Invalid file name: " + fileName);
+        }
+    }
+}
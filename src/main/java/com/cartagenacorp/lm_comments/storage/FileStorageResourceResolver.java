@@ -0,0 +1,47 @@
+package com.cartagenacorp.lm_comments.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Resuelve las peticiones a /uploads/** contra el FileStorage configurado en lugar de un directorio fijo.
+ */
+public class FileStorageResourceResolver implements ResourceResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageResourceResolver.class);
+
+    private final FileStorage fileStorage;
+
+    public FileStorageResourceResolver(FileStorage fileStorage) {
+        this.fileStorage = fileStorage;
+    }
+
+    @Override
+    public Resource resolveResource(HttpServletRequest request, String requestPath,
+                                    List<? extends Resource> locations, ResourceResolverChain chain) {
+        String fileName = UriUtils.decode(requestPath, StandardCharsets.UTF_8);
+        try {
+            FileStorage.validateFileName(fileName);
+            return fileStorage.load(fileName).orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("No se pudo leer el archivo {}: {}", fileName, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        return resourcePath;
+    }
+}
@@ -0,0 +1,135 @@
+package com.cartagenacorp.lm_comments.storage;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Guarda los archivos en un bucket compatible con S3 (MinIO u otro equivalente en local),
+ * con claves fragmentadas por prefijo de hash. Los archivos que aún no se migraron se leen del directorio local.
+ */
+public class S3FileStorage implements FileStorage {
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final int shardDepth;
+    private final Path legacyDirectory;
+
+    public S3FileStorage(S3Client s3Client, String bucket, int shardDepth, Path legacyDirectory) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.shardDepth = shardDepth;
+        this.legacyDirectory = legacyDirectory;
+    }
+
+    @Override
+    public void store(String fileName, Path source) throws IOException {
+        try {
+            s3Client.putObject(request -> request.bucket(bucket).key(key(fileName)), RequestBody.fromFile(source));
+        } catch (SdkException e) {
+            throw new IOException("Error uploading " + fileName + " to bucket " + bucket, e);
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public boolean exists(String fileName) throws IOException {
+        return head(fileName).isPresent() || Files.isRegularFile(legacyPath(fileName));
+    }
+
+    @Override
+    public Optional<Resource> load(String fileName) throws IOException {
+        Optional<HeadObjectResponse> head = head(fileName);
+        if (head.isPresent()) {
+            return Optional.of(new S3ObjectResource(fileName, head.get()));
+        }
+        Path legacy = legacyPath(fileName);
+        return Files.isRegularFile(legacy) ? Optional.of(new FileSystemResource(legacy)) : Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String fileName) throws IOException {
+        try {
+            s3Client.deleteObject(request -> request.bucket(bucket).key(key(fileName)));
+        } catch (SdkException e) {
+            throw new IOException("Error deleting " + fileName + " from bucket " + bucket, e);
+        }
+        Files.deleteIfExists(legacyPath(fileName));
+        return true;
+    }
+
+    private Optional<HeadObjectResponse> head(String fileName) throws IOException {
+        try {
+            return Optional.of(s3Client.headObject(request -> request.bucket(bucket).key(key(fileName))));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (SdkException e) {
+            throw new IOException("Error reading " + fileName + " from bucket " + bucket, e);
+        }
+    }
+
+    private String key(String fileName) {
+        return StorageKeys.shardedKey(fileName, shardDepth);
+    }
+
+    private Path legacyPath(String fileName) {
+        FileStorage.validateFileName(fileName);
+        return legacyDirectory.resolve(fileName);
+    }
+
+    private class S3ObjectResource extends AbstractResource {
+
+        private final String fileName;
+        private final HeadObjectResponse head;
+
+        private S3ObjectResource(String fileName, HeadObjectResponse head) {
+            this.fileName = fileName;
+            this.head = head;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            try {
+                return s3Client.getObject(request -> request.bucket(bucket).key(key(fileName)));
+            } catch (SdkException e) {
+                throw new IOException("Error reading " + fileName + " from bucket " + bucket, e);
+            }
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return head.contentLength();
+        }
+
+        @Override
+        public long lastModified() {
+            return head.lastModified().toEpochMilli();
+        }
+
+        @Override
+        public String getFilename() {
+            return fileName;
+        }
+
+        @Override
+        public String getDescription() {
+            return "S3 object [" + bucket + "/" + key(fileName) + "]";
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.cartagenacorp.lm_comments.storage;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Guarda los archivos en un árbol de carpetas por prefijo de hash (ab/cd/nombre) bajo file.upload-dir,
+ * para que ningún directorio acumule millones de entradas.
+ */
+public class ShardedFileSystemStorage implements FileStorage {
+
+    private final Path root;
+    private final int shardDepth;
+
+    public ShardedFileSystemStorage(Path root, int shardDepth) {
+        this.root = root;
+        this.shardDepth = shardDepth;
+    }
+
+    @Override
+    public void store(String fileName, Path source) throws IOException {
+        Path target = resolve(fileName);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public boolean exists(String fileName) {
+        return Files.isRegularFile(resolve(fileName)) || Files.isRegularFile(legacyPath(fileName));
+    }
+
+    @Override
+    public Optional<Resource> load(String fileName) {
+        Path path = resolve(fileName);
+        // Se vuelve a mirar la ruta fragmentada por si la migración movió el archivo entre las dos comprobaciones
+        for (Path candidate : new Path[]{path, legacyPath(fileName), path}) {
+            if (Files.isRegularFile(candidate)) {
+                return Optional.of(new FileSystemResource(candidate));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String fileName) throws IOException {
+        boolean deleted = Files.deleteIfExists(resolve(fileName));
+        return Files.deleteIfExists(legacyPath(fileName)) || deleted;
+    }
+
+    private Path resolve(String fileName) {
+        return root.resolve(StorageKeys.shardedKey(fileName, shardDepth));
+    }
+
+    private Path legacyPath(String fileName) {
+        FileStorage.validateFileName(fileName);
+        return root.resolve(fileName);
+    }
+}
@@ -0,0 +1,35 @@
+package com.cartagenacorp.lm_comments.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Calcula la ruta fragmentada de un archivo a partir del hash de su nombre: "ab/cd/nombre".
+ * El hash reparte los archivos de forma uniforme aunque los nombres compartan prefijo.
+ */
+final class StorageKeys {
+
+    private StorageKeys() {
+    }
+
+    static String shardedKey(String fileName, int depth) {
+        FileStorage.validateFileName(fileName);
+        String hash = sha256Hex(fileName);
+        StringBuilder key = new StringBuilder();
+        for (int level = 0; level < depth; level++) {
+            key.append(hash, level * 2, level * 2 + 2).append('/');
+        }
+        return key.append(fileName).toString();
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
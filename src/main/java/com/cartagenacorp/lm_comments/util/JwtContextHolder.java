@@ -1,40 +1,60 @@
 package com.cartagenacorp.lm_comments.util;
 
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
+/**
+ * Contexto inmutable de la petición, enlazado solo durante la ejecución de una llamada
+ * (mismo modelo que ScopedValue) y propagable a tareas hijas.
+ */
 public class JwtContextHolder {
-    private static final ThreadLocal<UUID> currentUserId = new ThreadLocal<>();
-    private static final ThreadLocal<String> currentToken = new ThreadLocal<>();
-    private static final ThreadLocal<UUID> currentOrganizationId = new ThreadLocal<>();
+    private static final ThreadLocal<RequestContext> currentContext = new ThreadLocal<>();
 
-    public static void setUserId(UUID userId) {
-        currentUserId.set(userId);
+    @FunctionalInterface
+    public interface ScopedCall<T, X extends Throwable> {
+        T call() throws X;
     }
 
-    public static UUID getUserId() {
-        return currentUserId.get();
+    public static <T, X extends Throwable> T callWhere(RequestContext context, ScopedCall<T, X> call) throws X {
+        RequestContext previous = currentContext.get();
+        currentContext.set(context);
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) {
+                currentContext.remove();
+            } else {
+                currentContext.set(previous);
+            }
+        }
     }
 
-    public static void setToken(String token) {
-        currentToken.set(token);
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        RequestContext context = currentContext.get();
+        return () -> callWhere(context, task::call);
     }
 
-    public static String getToken() {
-        return currentToken.get();
+    public static RequestContext getContext() {
+        return currentContext.get();
     }
 
-    public static void setOrganizationId(UUID organizationId) {
-        currentOrganizationId.set(organizationId);
+    public static JwtPrincipal getPrincipal() {
+        RequestContext context = currentContext.get();
+        return context != null ? context.principal() : null;
     }
 
-    public static UUID getOrganizationId() {
-        return currentOrganizationId.get();
+    public static UUID getUserId() {
+        JwtPrincipal principal = getPrincipal();
+        return principal != null ? principal.userId() : null;
     }
 
-    public static void clear() {
-        currentUserId.remove();
-        currentToken.remove();
-        currentOrganizationId.remove();
+    public static String getToken() {
+        RequestContext context = currentContext.get();
+        return context != null ? context.token() : null;
     }
-}
 
+    public static UUID getOrganizationId() {
+        JwtPrincipal principal = getPrincipal();
+        return principal != null ? principal.organizationId() : null;
+    }
+}
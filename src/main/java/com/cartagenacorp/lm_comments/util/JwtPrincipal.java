@@ -0,0 +1,7 @@
+package com.cartagenacorp.lm_comments.util;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+public record JwtPrincipal(UUID userId, UUID organizationId, String role, Set<String> permissions, Instant expiresAt) {}
@@ -1,12 +1,22 @@
 package com.cartagenacorp.lm_comments.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 
@@ -16,43 +26,56 @@ public class JwtTokenUtil {
     @Value("${app.jwt.secret}")
     private String secret;
 
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parser().setSigningKey(secret).parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
-        }
-    }
+    private final Cache<String, JwtPrincipal> verifiedTokenCache;
+    private JwtParser parser;
 
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(secret)
-                .parseClaimsJws(token)
-                .getBody();
+    public JwtTokenUtil(@Qualifier("verifiedTokenCache") Cache<String, JwtPrincipal> verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
-    public List<String> getPermissionsFromToken(String token) {
-        Claims claims = getAllClaimsFromToken(token);
-        return (List<String>) claims.get("permissions");
+    @PostConstruct
+    void initParser() {
+        parser = Jwts.parserBuilder().setSigningKey(secret).build();
     }
 
-    public String getRole(String token) {
-        Claims claims = getAllClaimsFromToken(token);
-        return claims.get("role", String.class);
-    }
+    /**
+     * Verifica el token una sola vez y devuelve sus datos. Los tokens ya verificados se
+     * sirven desde caché hasta su expiración.
+     */
+    public JwtPrincipal authenticate(String token) {
+        String tokenHash = hash(token);
+        JwtPrincipal cached = verifiedTokenCache.getIfPresent(tokenHash);
+        if (cached != null && (cached.expiresAt() == null || cached.expiresAt().isAfter(Instant.now()))) {
+            return cached;
+        }
 
-    public UUID getUserId(String token) {
-        String id = getAllClaimsFromToken(token).getSubject();
-        return UUID.fromString(id);
+        JwtPrincipal principal = toPrincipal(parser.parseClaimsJws(token).getBody());
+        verifiedTokenCache.put(tokenHash, principal);
+        return principal;
     }
 
-    public UUID getOrganizationId(String token) {
-        Claims claims = getAllClaimsFromToken(token);
+    private JwtPrincipal toPrincipal(Claims claims) {
         String organizationIdStr = claims.get("organization_id", String.class);
         if (organizationIdStr == null) {
             throw new JwtException("El claim 'organization_id' no existe en el token.");
         }
-        return UUID.fromString(organizationIdStr);
+
+        List<?> permissions = claims.get("permissions", List.class);
+        return new JwtPrincipal(
+                UUID.fromString(claims.getSubject()),
+                UUID.fromString(organizationIdStr),
+                claims.get("role", String.class),
+                permissions == null ? Set.of() : Set.copyOf(permissions.stream().map(String::valueOf).toList()),
+                claims.getExpiration() == null ? null : claims.getExpiration().toInstant()
+        );
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 }
@@ -0,0 +1,42 @@
+package com.cartagenacorp.lm_comments.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Posición opaca de paginación por clave (createdAt, id). Indica también si la página
+ * pedida es la siguiente o la anterior en el orden del listado.
+ */
+public record PageCursor(LocalDateTime createdAt, UUID id, boolean forward) {
+
+    private static final String NEXT = "n";
+    private static final String PREVIOUS = "p";
+
+    public static PageCursor next(LocalDateTime createdAt, UUID id) {
+        return new PageCursor(createdAt, id, true);
+    }
+
+    public static PageCursor previous(LocalDateTime createdAt, UUID id) {
+        return new PageCursor(createdAt, id, false);
+    }
+
+    public String encode() {
+        String raw = (forward ? NEXT : PREVIOUS) + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !(NEXT.equals(parts[0]) || PREVIOUS.equals(parts[0]))) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(LocalDateTime.parse(parts[1]), UUID.fromString(parts[2]), NEXT.equals(parts[0]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.cartagenacorp.lm_comments.util;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -12,8 +13,6 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
 
 @Aspect
 @Component
@@ -33,32 +32,21 @@ public class PermissionAspect {
 
         String token = authHeader.substring(7);
 
-        if (!jwtTokenUtil.validateToken(token)) {
+        JwtPrincipal principal;
+        try {
+            principal = jwtTokenUtil.authenticate(token);
+        } catch (JwtException | IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or expired token");
         }
 
-        List<String> permissions = jwtTokenUtil.getPermissionsFromToken(token);
-
-        UUID userId = jwtTokenUtil.getUserId(token);
-        UUID organizationId = jwtTokenUtil.getOrganizationId(token);
-        JwtContextHolder.setUserId(userId);
-        JwtContextHolder.setToken(token);
-        JwtContextHolder.setOrganizationId(organizationId);
-
-        try {
-            boolean hasPermission = Arrays.stream(requiresPermission.value())
-                    .anyMatch(permissions::contains);
-
-            if (!hasPermission) {
-                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Insufficient permissions");
-            }
+        boolean hasPermission = Arrays.stream(requiresPermission.value())
+                .anyMatch(principal.permissions()::contains);
 
-            return joinPoint.proceed();
-        } finally {
-            JwtContextHolder.clear();
+        if (!hasPermission) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Insufficient permissions");
         }
 
-
+        return JwtContextHolder.callWhere(new RequestContext(principal, token), joinPoint::proceed);
     }
 }
 
@@ -0,0 +1,3 @@
+package com.cartagenacorp.lm_comments.util;
+
+public record RequestContext(JwtPrincipal principal, String token) {}
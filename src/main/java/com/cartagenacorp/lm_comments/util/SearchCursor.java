@@ -0,0 +1,31 @@
+package com.cartagenacorp.lm_comments.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Posición opaca de paginación por clave (rank, createdAt, id) de la búsqueda de texto. El rank se
+ * guarda tal cual lo devuelve Postgres para que la comparación de la siguiente página sea exacta.
+ */
+public record SearchCursor(float rank, LocalDateTime createdAt, UUID id) {
+
+    public String encode() {
+        String raw = rank + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new SearchCursor(Float.parseFloat(parts[0]), LocalDateTime.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
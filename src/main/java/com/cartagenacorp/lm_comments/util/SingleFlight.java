@@ -0,0 +1,84 @@
+package com.cartagenacorp.lm_comments.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas concurrentes con la misma clave: el primer hilo ejecuta la llamada
+ * y los demás esperan y reciben su mismo resultado. Los que esperan lo hacen como mucho maxWait: si la
+ * llamada no termina a tiempo reciben WaitTimeoutException, pero la llamada original sigue su curso.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+    private final Counter executedCalls;
+    private final Counter coalescedCalls;
+
+    public SingleFlight(String name, Duration maxWait, MeterRegistry meterRegistry) {
+        this.maxWait = maxWait;
+        this.executedCalls = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        this.coalescedCalls = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedCalls.increment();
+            return await(existing);
+        }
+
+        executedCalls.increment();
+        try {
+            V value = call.get();
+            future.complete(value);
+            return value;
+        } catch (Throwable ex) {
+            // También los Error: si el futuro quedara sin completar, los que esperan no terminarían nunca
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            // Se espera sobre una copia para que el límite de tiempo no complete el futuro compartido
+            return future.copy().orTimeout(maxWait.toNanos(), TimeUnit.NANOSECONDS).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                throw new WaitTimeoutException("Shared call did not complete within " + maxWait);
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public static class WaitTimeoutException extends RuntimeException {
+        public WaitTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
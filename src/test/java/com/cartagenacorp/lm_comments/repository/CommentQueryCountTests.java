@@ -0,0 +1,146 @@
+package com.cartagenacorp.lm_comments.repository;
+
+import com.cartagenacorp.lm_comments.dto.CommentDTO;
+import com.cartagenacorp.lm_comments.dto.CommentResponsesDto;
+import com.cartagenacorp.lm_comments.entity.Comment;
+import com.cartagenacorp.lm_comments.entity.CommentResponses;
+import com.cartagenacorp.lm_comments.entity.FileAttachment;
+import com.cartagenacorp.lm_comments.mapper.CommentMapper;
+import com.cartagenacorp.lm_comments.mapper.CommentMapperImpl;
+import com.cartagenacorp.lm_comments.mapper.CommentResponsesMapper;
+import com.cartagenacorp.lm_comments.mapper.CommentResponsesMapperImpl;
+import com.cartagenacorp.lm_comments.mapper.FileAttachmentMapperImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CommentMapperImpl.class, FileAttachmentMapperImpl.class, CommentResponsesMapperImpl.class})
+class CommentQueryCountTests {
+
+    private static final int COMMENTS = 50;
+
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private CommentResponsesRepository commentResponsesRepository;
+    @Autowired
+    private CommentMapper commentMapper;
+    @Autowired
+    private CommentResponsesMapper commentResponsesMapper;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final UUID issueId = UUID.randomUUID();
+    private Comment firstComment;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < COMMENTS; i++) {
+            Comment comment = new Comment();
+            comment.setIssueId(issueId);
+            comment.setUserId(UUID.randomUUID());
+            comment.setText("comment " + i);
+            comment.setCreatedAt(now.minusMinutes(i));
+            for (int j = 0; j < 2; j++) {
+                FileAttachment attachment = new FileAttachment();
+                attachment.setFileName("file-" + i + "-" + j);
+                attachment.setFileUrl("http://localhost/uploads/file-" + i + "-" + j);
+                attachment.setComment(comment);
+                comment.getAttachments().add(attachment);
+            }
+            entityManager.persist(comment);
+            entityManager.persist(new CommentResponses(null, comment, UUID.randomUUID(), "reply", now));
+            if (firstComment == null) {
+                firstComment = comment;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+    }
+
+    @Test
+    void commentPageLoadsAttachmentsWithFixedNumberOfStatements() {
+        List<CommentDTO> page = commentRepository
+                .findByIssueId(issueId, PageRequest.of(0, COMMENTS, Sort.by(Sort.Direction.DESC, "createdAt")))
+                .map(commentMapper::commentToCommentDTO)
+                .getContent();
+
+        assertEquals(COMMENTS, page.size());
+        page.forEach(dto -> assertEquals(2, dto.getAttachments().size()));
+        // página + count + carga por lotes de los adjuntos
+        assertEquals(3, statistics().getPrepareStatementCount());
+    }
+
+    @Test
+    void keysetPageLoadsAttachmentsWithFixedNumberOfStatements() {
+        List<CommentDTO> page = commentRepository.findFirstKeysetPage(issueId, PageRequest.of(0, COMMENTS)).stream()
+                .map(commentMapper::commentToCommentDTO)
+                .toList();
+
+        assertEquals(COMMENTS, page.size());
+        assertEquals(2, statistics().getPrepareStatementCount());
+    }
+
+    @Test
+    void responsesListingDoesNotLoadParentComment() {
+        List<CommentResponsesDto> responses = commentResponsesRepository.findFirstKeysetPage(firstComment.getId(), PageRequest.of(0, 10))
+                .stream()
+                .map(commentResponsesMapper::toDto)
+                .toList();
+
+        assertEquals(1, responses.size());
+        assertEquals(firstComment.getId(), responses.get(0).getCommentId());
+        assertEquals(1, statistics().getPrepareStatementCount());
+    }
+
+    @Test
+    void latestResponsesForPageUseSingleStatement() {
+        Comment comment = entityManager.getReference(Comment.class, firstComment.getId());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= 4; i++) {
+            entityManager.persist(new CommentResponses(null, comment, UUID.randomUUID(), "reply " + i, now.plusMinutes(i)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics().clear();
+
+        List<UUID> commentIds = commentRepository.findFirstKeysetPage(issueId, PageRequest.of(0, COMMENTS)).stream()
+                .map(Comment::getId)
+                .toList();
+        statistics().clear();
+        List<CommentResponsesDto> responses = commentResponsesRepository.findLatestByCommentIds(commentIds, 3).stream()
+                .map(commentResponsesMapper::toDto)
+                .toList();
+
+        List<String> firstCommentReplies = responses.stream()
+                .filter(dto -> dto.getCommentId().equals(firstComment.getId()))
+                .map(CommentResponsesDto::getText)
+                .toList();
+        assertEquals(List.of("reply 2", "reply 3", "reply 4"), firstCommentReplies);
+        assertEquals(COMMENTS - 1 + 3, responses.size());
+        assertEquals(1, statistics().getPrepareStatementCount());
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
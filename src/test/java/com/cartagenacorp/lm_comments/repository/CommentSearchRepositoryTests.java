@@ -0,0 +1,97 @@
+package com.cartagenacorp.lm_comments.repository;
+
+import com.cartagenacorp.lm_comments.util.SearchCursor;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+// H2 no tiene tsvector: se comprueba la consulta que se genera, no su ejecución en Postgres
+class CommentSearchRepositoryTests {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final CommentSearchRepository repository = new CommentSearchRepository(jdbcTemplate);
+    private final UUID organizationId = UUID.randomUUID();
+
+    @Test
+    void searchWithoutFiltersIsScopedToOrganizationAndRankedByKeyset() {
+        repository.search(new CommentSearchRepository.Filter(organizationId, "deploy error", null, null, null, null), null, 21);
+
+        String sql = capturedSql();
+        MapSqlParameterSource params = capturedParams();
+        assertEquals(2, occurrences(sql, "c.organization_id = :organizationId"));
+        assertEquals(2, occurrences(sql, "websearch_to_tsquery('simple', :query)"));
+        assertTrue(sql.contains("c.text_search @@ q.query"));
+        assertTrue(sql.contains("r.text_search @@ q.query"));
+        assertTrue(sql.endsWith("ORDER BY hits.rank DESC, hits.created_at DESC, hits.id DESC LIMIT :limit"));
+        assertFalse(sql.contains(":issueId") || sql.contains(":userId") || sql.contains(":from") || sql.contains(":to"));
+        assertFalse(sql.contains(":afterRank"));
+        assertEquals(organizationId, params.getValue("organizationId"));
+        assertEquals("deploy error", params.getValue("query"));
+        assertEquals(21, params.getValue("limit"));
+    }
+
+    @Test
+    void filtersAndCursorAreAddedOnlyWhenPresent() {
+        UUID issueId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 2, 1, 0, 0);
+        SearchCursor cursor = new SearchCursor(0.0607927f, LocalDateTime.of(2026, 1, 15, 10, 30), UUID.randomUUID());
+
+        repository.search(new CommentSearchRepository.Filter(organizationId, "deploy", issueId, userId, from, to), cursor, 11);
+
+        String sql = capturedSql();
+        MapSqlParameterSource params = capturedParams();
+        assertEquals(2, occurrences(sql, "c.issue_id = :issueId"));
+        assertTrue(sql.contains("c.user_id = :userId") && sql.contains("r.user_id = :userId"));
+        assertTrue(sql.contains("c.created_at >= :from") && sql.contains("r.created_at >= :from"));
+        assertTrue(sql.contains("c.created_at < :to") && sql.contains("r.created_at < :to"));
+        assertTrue(sql.contains("WHERE (hits.rank, hits.created_at, hits.id) < (:afterRank, :afterCreatedAt, :afterId)"));
+        assertEquals(issueId, params.getValue("issueId"));
+        assertEquals(userId, params.getValue("userId"));
+        assertEquals(from, params.getValue("from"));
+        assertEquals(to, params.getValue("to"));
+        assertEquals(cursor.rank(), params.getValue("afterRank"));
+        assertEquals(cursor.createdAt(), params.getValue("afterCreatedAt"));
+        assertEquals(cursor.id(), params.getValue("afterId"));
+    }
+
+    @Test
+    void cursorRoundTripsRankExactly() {
+        SearchCursor cursor = new SearchCursor(0.0607927f, LocalDateTime.of(2026, 1, 15, 10, 30, 5, 123456000), UUID.randomUUID());
+
+        assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private String capturedSql() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(SqlParameterSource.class), any(RowMapper.class));
+        return sql.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private MapSqlParameterSource capturedParams() {
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate).query(any(String.class), params.capture(), any(RowMapper.class));
+        return (MapSqlParameterSource) params.getValue();
+    }
+
+    private static int occurrences(String text, String fragment) {
+        return text.split(Pattern.quote(fragment), -1).length - 1;
+    }
+}
@@ -0,0 +1,207 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.UploadSessionDto;
+import com.cartagenacorp.lm_comments.entity.Comment;
+import com.cartagenacorp.lm_comments.entity.FileAttachment;
+import com.cartagenacorp.lm_comments.entity.UploadSession;
+import com.cartagenacorp.lm_comments.mapper.FileAttachmentMapper;
+import com.cartagenacorp.lm_comments.repository.CommentRepository;
+import com.cartagenacorp.lm_comments.repository.FileAttachmentRepository;
+import com.cartagenacorp.lm_comments.repository.UploadSessionRepository;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.cartagenacorp.lm_comments.util.JwtPrincipal;
+import com.cartagenacorp.lm_comments.util.RequestContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceTests {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    @TempDir
+    Path uploadDir;
+
+    private final UploadSessionRepository uploadSessionRepository = mock(UploadSessionRepository.class);
+    private final CommentRepository commentRepository = mock(CommentRepository.class);
+    private final FileAttachmentService fileAttachmentService = mock(FileAttachmentService.class);
+    private final IssueExternalService issueExternalService = mock(IssueExternalService.class);
+    private final UUID userId = UUID.randomUUID();
+    private final RequestContext context = new RequestContext(
+            new JwtPrincipal(userId, UUID.randomUUID(), "USER", Set.of("COMMENT_CREATE"), Instant.now().plusSeconds(60)),
+            "token");
+
+    private ChunkedUploadService service;
+    private UploadSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new ChunkedUploadService(uploadSessionRepository, commentRepository,
+                mock(FileAttachmentRepository.class), fileAttachmentService, mock(FileAttachmentMapper.class),
+                issueExternalService, new NoOpTransactionManager());
+        ReflectionTestUtils.setField(service, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "defaultChunkSize", DataSize.ofBytes(CHUNK_SIZE));
+        ReflectionTestUtils.setField(service, "minChunkSize", DataSize.ofBytes(CHUNK_SIZE));
+        ReflectionTestUtils.setField(service, "maxChunkSize", DataSize.ofBytes(CHUNK_SIZE));
+        ReflectionTestUtils.setField(service, "maxFileSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(service, "sessionTtl", Duration.ofHours(1));
+
+        when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> {
+            UploadSession saved = invocation.getArgument(0);
+            saved.setId(UUID.randomUUID());
+            session = saved;
+            return saved;
+        });
+        when(uploadSessionRepository.findByIdAndUserId(any(), eq(userId))).thenAnswer(invocation -> Optional.of(session));
+        when(uploadSessionRepository.findForUpdate(any(), eq(userId))).thenAnswer(invocation -> Optional.of(session));
+        when(fileAttachmentService.createTempFile()).thenAnswer(invocation -> Files.createTempFile(uploadDir, "upload-", ".part"));
+    }
+
+    @Test
+    void chunkWithWrongChecksumIsRejectedAndNotStored() {
+        byte[] data = bytes(CHUNK_SIZE * 2, 1);
+        UUID sessionId = createSession(data.length);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> JwtContextHolder.callWhere(context,
+                () -> service.writeChunk(sessionId, 0, sha256(chunk(data, 1)), new ByteArrayInputStream(chunk(data, 0)))));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        UploadSessionDto state = JwtContextHolder.callWhere(context, () -> service.getSession(sessionId));
+        assertTrue(state.getReceivedChunks().isEmpty());
+    }
+
+    @Test
+    void completeBeforeAllChunksArriveReportsMissingChunks() {
+        byte[] data = bytes(CHUNK_SIZE * 2 + 100, 2);
+        UUID sessionId = createSession(data.length);
+        writeChunk(sessionId, data, 2);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> JwtContextHolder.callWhere(context, () -> service.completeUpload(sessionId, UUID.randomUUID())));
+
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+        assertTrue(ex.getReason().contains("[0, 1]"));
+        verify(fileAttachmentService, never()).attachStagedFiles(any(), anyList());
+    }
+
+    @Test
+    void chunksUploadedOutOfOrderAreAssembledInIndexOrder() {
+        byte[] data = bytes(CHUNK_SIZE * 2 + 100, 3);
+        UUID sessionId = createSession(data.length);
+        writeChunk(sessionId, data, 2);
+        writeChunk(sessionId, data, 0);
+        writeChunk(sessionId, data, 1);
+
+        Comment comment = new Comment();
+        comment.setId(UUID.randomUUID());
+        comment.setIssueId(UUID.randomUUID());
+        comment.setUserId(userId);
+        when(commentRepository.findById(comment.getId())).thenReturn(Optional.of(comment));
+        when(issueExternalService.validateIssueAccess(eq(comment.getIssueId()), anyString())).thenReturn(true);
+        AtomicReference<byte[]> assembled = new AtomicReference<>();
+        AtomicReference<String> digest = new AtomicReference<>();
+        when(fileAttachmentService.attachStagedFiles(eq(comment), anyList())).thenAnswer(invocation -> {
+            List<FileAttachmentService.StagedFile> staged = invocation.getArgument(1);
+            assembled.set(Files.readAllBytes(staged.get(0).tempFile()));
+            digest.set(staged.get(0).digest());
+            FileAttachment attachment = new FileAttachment();
+            attachment.setId(UUID.randomUUID());
+            return List.of(attachment);
+        });
+
+        JwtContextHolder.callWhere(context, () -> service.completeUpload(sessionId, comment.getId()));
+
+        assertArrayEquals(data, assembled.get());
+        assertEquals(sha256(data), digest.get());
+        assertEquals("COMPLETED", session.getStatus());
+        assertFalse(Files.exists(uploadDir.resolve(".chunks").resolve(sessionId.toString())));
+    }
+
+    private UUID createSession(long totalSize) {
+        UploadSessionDto request = new UploadSessionDto();
+        request.setFileName("video.mp4");
+        request.setTotalSize(totalSize);
+        return JwtContextHolder.callWhere(context, () -> service.createSession(request)).getId();
+    }
+
+    private void writeChunk(UUID sessionId, byte[] data, int index) {
+        byte[] chunk = chunk(data, index);
+        JwtContextHolder.callWhere(context,
+                () -> service.writeChunk(sessionId, index, sha256(chunk), new ByteArrayInputStream(chunk)));
+    }
+
+    private static byte[] chunk(byte[] data, int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(data, from, Math.min(data.length, from + CHUNK_SIZE));
+    }
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Activa la sincronización de transacciones para que se ejecuten los afterCommit
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
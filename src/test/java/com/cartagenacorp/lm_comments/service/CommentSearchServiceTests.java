@@ -0,0 +1,103 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.CommentSearchHitDto;
+import com.cartagenacorp.lm_comments.dto.CursorPageResponseDTO;
+import com.cartagenacorp.lm_comments.dto.UserBasicDataDto;
+import com.cartagenacorp.lm_comments.repository.CommentSearchRepository;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.cartagenacorp.lm_comments.util.JwtPrincipal;
+import com.cartagenacorp.lm_comments.util.RequestContext;
+import com.cartagenacorp.lm_comments.util.SearchCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommentSearchServiceTests {
+
+    private final CommentSearchRepository repository = mock(CommentSearchRepository.class);
+    private final IssueExternalService issueExternalService = mock(IssueExternalService.class);
+    private final UserExternalService userExternalService = mock(UserExternalService.class);
+    private final RequestContext context = new RequestContext(
+            new JwtPrincipal(UUID.randomUUID(), UUID.randomUUID(), "USER", Set.of("COMMENT_READ"), Instant.now().plusSeconds(60)),
+            "token");
+    private final UUID readableIssue = UUID.randomUUID();
+    private final UUID hiddenIssue = UUID.randomUUID();
+    private final UUID laterIssue = UUID.randomUUID();
+
+    private CommentSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CommentSearchService(repository, issueExternalService, userExternalService);
+        ReflectionTestUtils.setField(service, "maxScanRounds", 5);
+        when(userExternalService.getUsersData(eq("token"), anyList())).thenReturn(List.of());
+    }
+
+    @Test
+    void hitsFromUnreadableIssuesAreSkippedWithOneAccessCheckPerBatch() {
+        CommentSearchHitDto first = hit(readableIssue, 0.9f);
+        CommentSearchHitDto hidden = hit(hiddenIssue, 0.8f);
+        CommentSearchHitDto second = hit(readableIssue, 0.7f);
+        CommentSearchHitDto later = hit(laterIssue, 0.6f);
+        when(repository.search(any(), isNull(), eq(3))).thenReturn(List.of(first, hidden, second));
+        when(repository.search(any(), eq(cursorOf(second)), eq(3))).thenReturn(List.of(later));
+        when(issueExternalService.checkIssuesReadAccess(Set.of(readableIssue, hiddenIssue), "token"))
+                .thenReturn(new IssueExternalService.IssuesReadAccess(Set.of(readableIssue), Set.of()));
+        when(issueExternalService.checkIssuesReadAccess(Set.of(laterIssue), "token"))
+                .thenReturn(new IssueExternalService.IssuesReadAccess(Set.of(laterIssue), Set.of()));
+
+        CursorPageResponseDTO<CommentSearchHitDto> page = JwtContextHolder.callWhere(context,
+                () -> service.search("deploy", null, null, null, null, null, 2));
+
+        assertEquals(List.of(first, second), page.getContent());
+        assertEquals(cursorOf(second).encode(), page.getNextCursor());
+        assertNull(page.getPreviousCursor());
+        verify(issueExternalService).checkIssuesReadAccess(Set.of(readableIssue, hiddenIssue), "token");
+        verify(issueExternalService).checkIssuesReadAccess(Set.of(laterIssue), "token");
+        verify(userExternalService, times(1)).getUsersData(eq("token"), anyList());
+    }
+
+    @Test
+    void lastPageHasNoNextCursor() {
+        CommentSearchHitDto only = hit(readableIssue, 0.5f);
+        when(repository.search(any(), isNull(), eq(3))).thenReturn(List.of(only));
+        when(issueExternalService.checkIssuesReadAccess(Set.of(readableIssue), "token"))
+                .thenReturn(new IssueExternalService.IssuesReadAccess(Set.of(readableIssue), Set.of()));
+        when(userExternalService.getUsersData(eq("token"), anyList()))
+                .thenReturn(List.of(new UserBasicDataDto(only.getUserId(), "Ana", "Pérez", null)));
+
+        CursorPageResponseDTO<CommentSearchHitDto> page = JwtContextHolder.callWhere(context,
+                () -> service.search("deploy", null, null, null, null, null, 2));
+
+        assertEquals(List.of(only), page.getContent());
+        assertEquals("Ana", page.getContent().get(0).getUser().getFirstName());
+        assertNull(page.getNextCursor());
+    }
+
+    private static CommentSearchHitDto hit(UUID issueId, float rank) {
+        UUID id = UUID.randomUUID();
+        return new CommentSearchHitDto(CommentSearchHitDto.Type.COMMENT, id, id, issueId, UUID.randomUUID(),
+                "deploy failed", LocalDateTime.of(2026, 1, 1, 12, 0), rank, null);
+    }
+
+    private static SearchCursor cursorOf(CommentSearchHitDto hit) {
+        return new SearchCursor(hit.getRank(), hit.getCreatedAt(), hit.getId());
+    }
+}
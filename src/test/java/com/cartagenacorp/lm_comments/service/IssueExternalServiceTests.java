@@ -0,0 +1,120 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.dto.IssueDtoResponse;
+import com.cartagenacorp.lm_comments.util.JwtContextHolder;
+import com.cartagenacorp.lm_comments.util.JwtPrincipal;
+import com.cartagenacorp.lm_comments.util.RequestContext;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IssueExternalServiceTests {
+
+    private static final int MAX_CONCURRENT_CALLS = 3;
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RequestContext context = new RequestContext(
+            new JwtPrincipal(UUID.randomUUID(), UUID.randomUUID(), "USER", Set.of("COMMENT_READ"), Instant.now().plusSeconds(60)),
+            "token");
+
+    private IssueExternalService service;
+
+    @BeforeEach
+    void setUp() {
+        // Sin espera en el bulkhead: cualquier llamada por encima del límite se rechazaría
+        Bulkhead bulkhead = Bulkhead.of("issues", BulkheadConfig.custom()
+                .maxConcurrentCalls(MAX_CONCURRENT_CALLS)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        service = new IssueExternalService(restTemplate, Caffeine.newBuilder().build(), Caffeine.newBuilder().build(),
+                CircuitBreaker.ofDefaults("issues"), bulkhead, executor, Duration.ofSeconds(5), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "issueServiceUrl", "http://issues");
+        ReflectionTestUtils.setField(service, "serveStaleAccess", false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void issuesThatCouldNotBeCheckedAreReportedApartFromDenied() {
+        UUID readable = UUID.randomUUID();
+        UUID denied = UUID.randomUUID();
+        UUID unreachable = UUID.randomUUID();
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(IssueDtoResponse.class)))
+                .thenAnswer(invocation -> {
+                    String url = invocation.getArgument(0);
+                    if (url.endsWith(denied.toString())) {
+                        throw HttpClientErrorException.create(HttpStatus.FORBIDDEN, "Forbidden", null, null, null);
+                    }
+                    if (url.endsWith(unreachable.toString())) {
+                        throw new ResourceAccessException("Connection refused");
+                    }
+                    return ResponseEntity.ok().build();
+                });
+
+        IssueExternalService.IssuesReadAccess access = JwtContextHolder.callWhere(context,
+                () -> service.checkIssuesReadAccess(List.of(readable, denied, unreachable), "token"));
+
+        assertEquals(Set.of(readable), access.readable());
+        assertEquals(Set.of(unreachable), access.unavailable());
+    }
+
+    @Test
+    void fanOutNeverExceedsTheBulkheadSize() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(IssueDtoResponse.class)))
+                .thenAnswer(invocation -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return ResponseEntity.ok().build();
+                });
+        Set<UUID> issueIds = Stream.generate(UUID::randomUUID).limit(20).collect(Collectors.toSet());
+
+        IssueExternalService.IssuesReadAccess access = JwtContextHolder.callWhere(context,
+                () -> service.checkIssuesReadAccess(issueIds, "token"));
+
+        assertEquals(issueIds, access.readable());
+        assertTrue(access.unavailable().isEmpty());
+        assertTrue(maxInFlight.get() <= MAX_CONCURRENT_CALLS, "max in flight: " + maxInFlight.get());
+    }
+}
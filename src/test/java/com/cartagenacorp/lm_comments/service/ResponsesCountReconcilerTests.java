@@ -0,0 +1,54 @@
+package com.cartagenacorp.lm_comments.service;
+
+import com.cartagenacorp.lm_comments.entity.Comment;
+import com.cartagenacorp.lm_comments.entity.CommentResponses;
+import com.cartagenacorp.lm_comments.repository.CommentRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "app.responses-count.reconcile-batch-size=2")
+@Import(ResponsesCountReconciler.class)
+class ResponsesCountReconcilerTests {
+
+    private static final int COMMENTS = 5;
+
+    @Autowired
+    private ResponsesCountReconciler reconciler;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void everyBatchIsReconciled() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < COMMENTS; i++) {
+            Comment comment = new Comment();
+            comment.setIssueId(UUID.randomUUID());
+            comment.setUserId(UUID.randomUUID());
+            comment.setText("comment " + i);
+            comment.setCreatedAt(now);
+            comment.setResponsesCount(7);
+            entityManager.persist(comment);
+            for (int j = 0; j < i; j++) {
+                entityManager.persist(new CommentResponses(null, comment, UUID.randomUUID(), "reply", now));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        reconciler.reconcile();
+        entityManager.clear();
+
+        commentRepository.findAll().forEach(comment -> assertEquals(
+                Integer.parseInt(comment.getText().substring("comment ".length())), comment.getResponsesCount()));
+    }
+}
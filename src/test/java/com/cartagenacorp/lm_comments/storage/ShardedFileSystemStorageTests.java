@@ -0,0 +1,59 @@
+package com.cartagenacorp.lm_comments.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedFileSystemStorageTests {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void storeMovesFileIntoHashPrefixedDirectories() throws Exception {
+        ShardedFileSystemStorage storage = new ShardedFileSystemStorage(root, 2);
+        Path source = Files.writeString(root.resolve("upload.part"), "contenido");
+
+        storage.store("captura.png", source);
+
+        Path stored = root.resolve(StorageKeys.shardedKey("captura.png", 2));
+        assertFalse(Files.exists(source));
+        assertTrue(Files.isRegularFile(stored));
+        assertEquals(root, stored.getParent().getParent().getParent());
+        Resource resource = storage.load("captura.png").orElseThrow();
+        assertEquals("contenido", resource.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void legacyFlatFilesAreReadableUntilMigratedAndDeletable() throws Exception {
+        ShardedFileSystemStorage storage = new ShardedFileSystemStorage(root, 2);
+        Path legacy = Files.writeString(root.resolve("antiguo.txt"), "legacy");
+
+        assertTrue(storage.exists("antiguo.txt"));
+        assertTrue(storage.load("antiguo.txt").isPresent());
+
+        storage.store("antiguo.txt", legacy);
+        assertFalse(Files.exists(legacy));
+        assertTrue(storage.load("antiguo.txt").isPresent());
+
+        assertTrue(storage.delete("antiguo.txt"));
+        assertFalse(storage.exists("antiguo.txt"));
+    }
+
+    @Test
+    void rejectsNamesThatEscapeTheStorageRoot() {
+        ShardedFileSystemStorage storage = new ShardedFileSystemStorage(root, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.load("../secreto"));
+        assertThrows(IllegalArgumentException.class, () -> storage.load(".tmp"));
+    }
+}
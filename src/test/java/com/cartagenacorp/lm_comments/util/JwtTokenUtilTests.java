@@ -0,0 +1,71 @@
+package com.cartagenacorp.lm_comments.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtTokenUtilTests {
+
+    private static final String SECRET = "c2VjcmV0LXBhcmEtbG9zLXRlc3RzLWRlLWxtLWNvbW1lbnRzLTI1Ni1iaXRz";
+
+    private Cache<String, JwtPrincipal> cache;
+    private JwtTokenUtil jwtTokenUtil;
+
+    @BeforeEach
+    void setUp() {
+        cache = Caffeine.newBuilder().recordStats().build();
+        jwtTokenUtil = new JwtTokenUtil(cache);
+        ReflectionTestUtils.setField(jwtTokenUtil, "secret", SECRET);
+        jwtTokenUtil.initParser();
+    }
+
+    @Test
+    void authenticateReadsAllClaimsAndCachesVerifiedToken() {
+        UUID userId = UUID.randomUUID();
+        UUID organizationId = UUID.randomUUID();
+        String token = token(userId, organizationId, new Date(System.currentTimeMillis() + 60_000));
+
+        JwtPrincipal principal = jwtTokenUtil.authenticate(token);
+        JwtPrincipal again = jwtTokenUtil.authenticate(token);
+
+        assertEquals(userId, principal.userId());
+        assertEquals(organizationId, principal.organizationId());
+        assertEquals("ADMIN", principal.role());
+        assertEquals(Set.of("COMMENT_READ", "COMMENT_CREATE"), principal.permissions());
+        assertEquals(principal, again);
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void authenticateRejectsExpiredToken() {
+        String token = token(UUID.randomUUID(), UUID.randomUUID(), new Date(System.currentTimeMillis() - 60_000));
+
+        assertThrows(JwtException.class, () -> jwtTokenUtil.authenticate(token));
+    }
+
+    private String token(UUID userId, UUID organizationId, Date expiration) {
+        return Jwts.builder()
+                .setSubject(userId.toString())
+                .claim("organization_id", organizationId.toString())
+                .claim("role", "ADMIN")
+                .claim("permissions", List.of("COMMENT_READ", "COMMENT_CREATE"))
+                .setExpiration(expiration)
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
@@ -0,0 +1,94 @@
+package com.cartagenacorp.lm_comments.util;
+
+import com.cartagenacorp.lm_comments.controller.CommentController;
+import com.cartagenacorp.lm_comments.dto.CommentImportResultDto;
+import com.cartagenacorp.lm_comments.service.CommentImportService;
+import com.cartagenacorp.lm_comments.service.CommentSearchService;
+import com.cartagenacorp.lm_comments.service.CommentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PermissionAspectTests {
+
+    private static final String TOKEN = "token";
+
+    private final JwtTokenUtil jwtTokenUtil = mock(JwtTokenUtil.class);
+    private final CommentImportService commentImportService = mock(CommentImportService.class);
+    private CommentController controller;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        PermissionAspect aspect = new PermissionAspect();
+        ReflectionTestUtils.setField(aspect, "jwtTokenUtil", jwtTokenUtil);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new CommentController(
+                mock(CommentService.class), commentImportService, mock(CommentSearchService.class)));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        controller = factory.getProxy();
+
+        request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void importRejectsCallerWithOnlyCommentCreate() {
+        authenticateWith("COMMENT_READ", "COMMENT_CREATE");
+        UUID issueId = UUID.randomUUID();
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.importComments(issueId.toString(), request));
+
+        assertEquals(HttpStatus.FORBIDDEN, ex.getStatusCode());
+        verify(commentImportService, never()).importComments(any(), any());
+    }
+
+    @Test
+    void importAllowsCallerWithCommentImport() throws Exception {
+        authenticateWith("COMMENT_IMPORT");
+        UUID issueId = UUID.randomUUID();
+        CommentImportResultDto result = new CommentImportResultDto(issueId, 0, 0, 0, List.of());
+        when(commentImportService.importComments(eq(issueId), any(InputStream.class))).thenReturn(result);
+
+        ResponseEntity<?> response = controller.importComments(issueId.toString(), request);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    private void authenticateWith(String... permissions) {
+        when(jwtTokenUtil.authenticate(TOKEN)).thenReturn(new JwtPrincipal(UUID.randomUUID(), UUID.randomUUID(),
+                "USER", Set.of(permissions), Instant.now().plusSeconds(60)));
+    }
+}
@@ -0,0 +1,135 @@
+package com.cartagenacorp.lm_comments.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTests {
+
+    @Test
+    void concurrentCallersWithSameKeyShareOneCall() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofSeconds(5), registry);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> flight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return 42;
+                })));
+            }
+            while (registry.counter("singleflight.calls", "name", "test", "result", "coalesced").count() < callers - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(42, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(1, registry.counter("singleflight.calls", "name", "test", "result", "executed").count());
+    }
+
+    @Test
+    void sequentialCallsAreNotCoalesced() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofSeconds(5), new SimpleMeterRegistry());
+        AtomicInteger calls = new AtomicInteger();
+
+        flight.execute("key", calls::incrementAndGet);
+        flight.execute("key", calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void waitersFailWithTheLeadersErrorInsteadOfHanging() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofSeconds(5), registry);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = executor.submit(() -> flight.execute("key", () -> {
+                leaderStarted.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new StackOverflowError();
+            }));
+            leaderStarted.await(5, TimeUnit.SECONDS);
+            Future<Integer> waiter = executor.submit(() -> flight.execute("key", () -> 42));
+            while (registry.counter("singleflight.calls", "name", "test", "result", "coalesced").count() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException waiterFailure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, leaderFailure.getCause());
+            assertInstanceOf(StackOverflowError.class, waiterFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(42, flight.execute("key", () -> 42));
+    }
+
+    @Test
+    void waitersGiveUpAfterMaxWait() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", Duration.ofMillis(50), registry);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> leader = executor.submit(() -> flight.execute("key", () -> {
+                leaderStarted.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 42;
+            }));
+            leaderStarted.await(5, TimeUnit.SECONDS);
+
+            assertThrows(SingleFlight.WaitTimeoutException.class, () -> flight.execute("key", () -> 0));
+
+            release.countDown();
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}